@@ -0,0 +1,64 @@
+package org.example.benchmarks;
+
+import org.example.model.SessionData;
+import org.example.model.UserAnalytics;
+import org.example.service.AnalyticsAggregator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the user analytics: {@code fullScan} computes them from the whole history, the way they
+ * used to be calculated on every load; {@code addSession} is what saving one more game costs with
+ * the running {@link AnalyticsAggregator}, including building the {@link UserAnalytics}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class AnalyticsBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    private int sessions;
+
+    private List<SessionData> history;
+    private AnalyticsAggregator aggregator;
+    private SessionData next;
+
+    @Setup
+    public void createHistory() {
+        SplittableRandom random = new SplittableRandom(42);
+        history = HistoryFixture.randomSessions(random, sessions);
+        aggregator = new AnalyticsAggregator();
+        history.forEach(aggregator::add);
+        next = HistoryFixture.randomSession(random);
+    }
+
+    @Benchmark
+    public UserAnalytics fullScan() {
+        AnalyticsAggregator scan = new AnalyticsAggregator();
+        for (SessionData data : history) {
+            scan.add(data);
+        }
+        return scan.toAnalytics();
+    }
+
+    @Benchmark
+    public UserAnalytics addSession() {
+        aggregator.add(next);
+        return aggregator.toAnalytics();
+    }
+}
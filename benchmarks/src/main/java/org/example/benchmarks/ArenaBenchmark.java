@@ -0,0 +1,60 @@
+package org.example.benchmarks;
+
+import org.example.engine.Arena;
+import org.example.engine.ArenaBot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one {@link Arena} tick with thousands of bots on a 1024 x 1024 board, at several thread
+ * counts. Dead bots respawn, so the population stays the same however long the benchmark runs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArenaBenchmark {
+    private static final int BOARD_SIZE = 1024;
+
+    @Param({"1000", "10000"})
+    private int snakes;
+
+    @Param({"1", "2", "4", "8"})
+    private int threads;
+
+    private Arena arena;
+
+    @Setup(Level.Trial)
+    public void createArena() {
+        arena = new Arena(BOARD_SIZE, BOARD_SIZE, snakes, true, threads, 42);
+        for (int i = 0; i < snakes; i++) {
+            arena.addSnake(new ArenaBot(i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void closeArena() {
+        arena.close();
+    }
+
+    @Benchmark
+    public long tick() {
+        arena.step();
+        return arena.getDeaths();
+    }
+}
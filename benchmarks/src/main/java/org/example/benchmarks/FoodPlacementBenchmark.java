@@ -0,0 +1,78 @@
+package org.example.benchmarks;
+
+import org.example.engine.OccupancyGrid;
+import org.example.engine.SeededRandom;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of picking a cell for new food on a 100x100 board that the snake fills to different degrees.
+ * {@code rankedFreeCell} is what the engine uses; {@code rejectionSampling} is the retry-until-free
+ * approach it uses only on boards too big to rank, kept as a reference point.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FoodPlacementBenchmark {
+    private static final int CELLS = 100 * 100;
+
+    @Param({"10", "50", "90", "99"})
+    private int fillPercent;
+
+    private OccupancyGrid occupancy;
+    private int freeCount;
+    private boolean[] occupied;
+    private SeededRandom random;
+
+    @Setup
+    public void fillBoard() {
+        random = new SeededRandom(42);
+        occupancy = new OccupancyGrid(CELLS);
+        occupied = new boolean[CELLS];
+
+        // Take a random fillPercent of the cells
+        int[] order = new int[CELLS];
+        for (int i = 0; i < CELLS; i++) {
+            order[i] = i;
+        }
+        int taken = CELLS * fillPercent / 100;
+        for (int i = 0; i < taken; i++) {
+            int j = i + random.nextInt(CELLS - i);
+            int cell = order[j];
+            order[j] = order[i];
+            order[i] = cell;
+
+            occupancy.set(cell);
+            occupied[cell] = true;
+        }
+        freeCount = CELLS - taken;
+    }
+
+    @Benchmark
+    public int rankedFreeCell() {
+        return occupancy.selectFree(random.nextInt(freeCount));
+    }
+
+    @Benchmark
+    public int rejectionSampling() {
+        int cell;
+        do {
+            cell = random.nextInt(CELLS);
+        } while (occupied[cell]);
+        return cell;
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.benchmarks;
+
+import org.example.model.SessionData;
+import org.example.service.SessionLog;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+/**
+ * Random but reproducible session histories for the benchmarks.
+ */
+final class HistoryFixture {
+    private static final LocalDateTime FIRST_GAME = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final int WRITE_BATCH = 8192;
+
+    private HistoryFixture() {
+    }
+
+    static SessionData randomSession(SplittableRandom random) {
+        int foodEaten = random.nextInt(200);
+        return SessionData.builder()
+                .score(foodEaten)
+                .length(foodEaten + 1)
+                .foodEaten(foodEaten)
+                .moves(foodEaten * 4 + random.nextInt(50))
+                .timeSpentMillis(10_000 + random.nextLong(600_000))
+                .gameMode(random.nextInt(4) == 0 ? "Timed" : "Normal")
+                .date(FIRST_GAME.plusSeconds(random.nextLong(365L * 24 * 3600)))
+                .build();
+    }
+
+    static List<SessionData> randomSessions(SplittableRandom random, int count) {
+        List<SessionData> sessions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            sessions.add(randomSession(random));
+        }
+        return sessions;
+    }
+
+    /**
+     * Writes a session log of {@code count} sessions under {@code logDir}, in batches so the history
+     * is never held in memory.
+     */
+    static void writeHistory(Path logDir, int count) throws IOException {
+        SplittableRandom random = new SplittableRandom(42);
+        try (SessionLog log = new SessionLog(logDir, logDir.resolve("none.csv"))) {
+            for (int written = 0; written < count; written += WRITE_BATCH) {
+                log.append(randomSessions(random, Math.min(WRITE_BATCH, count - written)), false);
+            }
+            log.sync();
+        }
+    }
+
+    static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.example.benchmarks;
+
+import org.example.model.SessionData;
+import org.example.service.FileService;
+import org.example.service.SessionLog;
+import org.example.service.SessionRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading the full session history, as {@link FileService#getHistory} does the first time something
+ * needs raw sessions: the session log is streamed into a new {@link SessionRepository} in batches.
+ * FileService only does this once per run, so the benchmark repeats it with its own log reader.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class HistoryLoadBenchmark {
+    private static final int BATCH_SIZE = 8192;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    private int history;
+
+    private Path logDir;
+
+    @Setup
+    public void createHistory() throws IOException {
+        logDir = Files.createTempDirectory("snake-bench");
+        HistoryFixture.writeHistory(logDir, history);
+    }
+
+    @TearDown
+    public void deleteHistory() throws IOException {
+        HistoryFixture.deleteRecursively(logDir);
+    }
+
+    @Benchmark
+    public SessionRepository loadHistory() throws IOException {
+        SessionRepository repository = new SessionRepository();
+        List<SessionData> batch = new ArrayList<>(BATCH_SIZE);
+        try (SessionLog log = new SessionLog(logDir, logDir.resolve("none.csv"))) {
+            log.load(data -> {
+                batch.add(data);
+                if (batch.size() == BATCH_SIZE) {
+                    repository.addAll(batch);
+                    batch.clear();
+                }
+            }, () -> {
+                batch.clear();
+                repository.clear();
+            });
+        }
+        repository.addAll(batch);
+        return repository;
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.benchmarks;
+
+import org.example.model.SessionData;
+import org.example.service.FileService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link FileService} against histories of different sizes: {@code writeData} saves one game (log
+ * row, analytics snapshot and leaderboard record) and {@code loadAnalyticsSnapshot} is the part of
+ * startup that has to finish before the first frame.
+ * <p>
+ * FileService keeps its state in static fields, so every trial runs in its own fork, pointed at a
+ * scratch directory through {@code snake.dataDir} before the class is first used. Do not run these
+ * with {@code -f 0}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PersistenceBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    private int history;
+
+    private Path dataDir;
+    private SplittableRandom random;
+
+    @Setup
+    public void createHistory() throws IOException {
+        dataDir = Files.createTempDirectory("snake-bench");
+        System.setProperty("snake.dataDir", dataDir.toString());
+        HistoryFixture.writeHistory(dataDir.resolve("log"), history);
+
+        // Loads the history once, which also writes the analytics snapshot and the leaderboard index
+        FileService.getUserData();
+        random = new SplittableRandom(7);
+    }
+
+    @TearDown
+    public void deleteHistory() throws IOException {
+        FileService.sync();
+        HistoryFixture.deleteRecursively(dataDir);
+    }
+
+    @Benchmark
+    public SessionData writeData() {
+        SessionData data = HistoryFixture.randomSession(random);
+        FileService.writeData(data);
+        return data;
+    }
+
+    @Benchmark
+    public boolean loadAnalyticsSnapshot() {
+        return FileService.loadAnalyticsSnapshot();
+    }
+}
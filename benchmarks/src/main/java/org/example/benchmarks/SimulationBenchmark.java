@@ -0,0 +1,43 @@
+package org.example.benchmarks;
+
+import org.example.service.BatchSimulator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A batch of headless autopilot games on the 24 x 24 board at several thread counts. Each run plays
+ * the same seeded games, so the time per batch at n threads against 1 thread shows how close the
+ * {@link BatchSimulator} gets to linear scaling (thread counts above the core count only add noise).
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SimulationBenchmark {
+    private static final int GAMES = 64;
+
+    @Param({"1", "2", "4", "8"})
+    private int threads;
+
+    @Benchmark
+    public BatchSimulator.Result simulate() throws IOException {
+        BatchSimulator.Settings settings = BatchSimulator.Settings.builder()
+                .games(GAMES)
+                .threads(threads)
+                .build();
+        return BatchSimulator.run(settings);
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.benchmarks;
+
+import org.example.engine.Direction;
+import org.example.engine.SnakeEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one game tick ({@link SnakeEngine#step}: turn, eat, move and collision check) for snakes of
+ * different lengths on a 64x64 board.
+ * <p>
+ * The snake is steered along a Hamiltonian cycle of the board, so it never dies and grows only when
+ * it passes the food. Each invocation starts again from the same grown snake, so the length barely
+ * changes while it is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TickBenchmark {
+    private static final int BOARD_SIZE = 64;
+    private static final int TICKS = 8192; // two laps of the board per invocation
+
+    // 3686 is 90% of the board
+    @Param({"2", "64", "1024", "3686"})
+    private int length;
+
+    private Direction[] route;
+    private SnakeEngine grown;
+    private SnakeEngine engine;
+
+    @Setup(Level.Trial)
+    public void growSnake() {
+        route = hamiltonianCycle(BOARD_SIZE, BOARD_SIZE);
+        grown = new SnakeEngine(BOARD_SIZE, BOARD_SIZE, "Normal", SnakeEngine.DEFAULT_TICKS_PER_SECOND, 42);
+        while (grown.getLength() < length) {
+            grown.step(route[grown.getHeadCell()]);
+        }
+        engine = grown.snapshot();
+    }
+
+    @Setup(Level.Invocation)
+    public void restoreSnake() {
+        engine.restore(grown);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TICKS)
+    public int tick() {
+        for (int i = 0; i < TICKS; i++) {
+            engine.step(route[engine.getHeadCell()]);
+        }
+        return engine.getHeadCell();
+    }
+
+    /**
+     * The direction to take from every cell to follow one cycle through the whole board: right along
+     * even rows and left along odd rows (leaving column 0 free), then back up column 0. Needs an even
+     * height.
+     */
+    static Direction[] hamiltonianCycle(int width, int height) {
+        Direction[] route = new Direction[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                Direction direction;
+                if (x == 0) {
+                    direction = y == 0 ? Direction.RIGHT : Direction.UP;
+                } else if (y % 2 == 0) {
+                    direction = x < width - 1 ? Direction.RIGHT : Direction.DOWN;
+                } else if (y == height - 1) {
+                    direction = Direction.LEFT;
+                } else {
+                    direction = x > 1 ? Direction.LEFT : Direction.DOWN;
+                }
+                route[y * width + x] = direction;
+            }
+        }
+        return route;
+    }
+}
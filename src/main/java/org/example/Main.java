@@ -1,12 +1,66 @@
 package org.example;
 
+import org.example.engine.Arena;
+import org.example.engine.ArenaBot;
+import org.example.engine.ReplayPlayer;
+import org.example.engine.SnakeEngine;
+import org.example.metrics.Metrics;
+import org.example.model.Replay;
+import org.example.service.BatchSimulator;
 import org.example.service.FileService;
+import org.example.service.ReplayService;
+import org.example.service.SessionColumnStore;
 import org.example.ui.IntroScreenUI;
+import org.example.utils.Formatter;
+import org.example.utils.LatencyHistogram;
 
 import javax.swing.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        // Headless playback: --replay <file>
+        if (args.length == 2 && "--replay".equals(args[0])) {
+            playReplay(args[1]);
+            return;
+        }
+
+        // Column store conversion: --import-csv <csv> [dir] and --export-csv <csv> [dir]
+        if (args.length >= 2 && "--import-csv".equals(args[0])) {
+            Path dir = args.length > 2 ? Paths.get(args[2]) : SessionColumnStore.DEFAULT_DIR;
+            long rows = SessionColumnStore.importCsv(Paths.get(args[1]), dir);
+            try (SessionColumnStore store = new SessionColumnStore(dir)) {
+                System.out.printf("Imported %d sessions; store now holds %d%n%s%n", rows, store.size(), store.computeAnalytics());
+            }
+            return;
+        }
+        if (args.length >= 2 && "--export-csv".equals(args[0])) {
+            Path dir = args.length > 2 ? Paths.get(args[2]) : SessionColumnStore.DEFAULT_DIR;
+            System.out.printf("Exported %d sessions%n", SessionColumnStore.exportCsv(dir, Paths.get(args[1])));
+            return;
+        }
+
+        // Batch simulation: --simulate <games> [--board WxH] [--mode Normal|Timed] [--controller autopilot|random]
+        //                   [--seed n] [--threads n] [--out dir]
+        if (args.length >= 2 && "--simulate".equals(args[0])) {
+            simulate(args);
+            return;
+        }
+
+        // Headless arena of bots: --arena <snakes> [--board WxH] [--food n] [--ticks n] [--tps n] [--threads n] [--seed n]
+        if (args.length >= 2 && "--arena".equals(args[0])) {
+            runArena(args);
+            return;
+        }
+
+        Metrics.start();
+
+        // The analytics come from a small snapshot; the history is only read if something needs it
+        FileService.loadAnalyticsSnapshot();
         new Thread(FileService::getUserData).start();
 
         // Main game window
@@ -21,4 +75,115 @@ public class Main {
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.setVisible(true);
     }
+
+    // Runs a batch of headless games and prints their analytics
+    private static void simulate(String[] args) throws IOException {
+        BatchSimulator.Settings.SettingsBuilder settings = BatchSimulator.Settings.builder()
+                .games(Integer.parseInt(args[1]));
+        Path out = null;
+        for (int i = 2; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--board" -> {
+                    int x = value.indexOf('x');
+                    settings.gridWidth(Integer.parseInt(value.substring(0, x)))
+                            .gridHeight(Integer.parseInt(value.substring(x + 1)));
+                }
+                case "--mode" -> settings.gameMode(value);
+                case "--controller" -> settings.controller(BatchSimulator.Controller.valueOf(value.toUpperCase(Locale.ROOT)));
+                case "--seed" -> settings.seed(Long.parseLong(value));
+                case "--threads" -> settings.threads(Integer.parseInt(value));
+                case "--out" -> out = Paths.get(value);
+                default -> throw new IllegalArgumentException("Unknown option '" + args[i] + "'");
+            }
+        }
+
+        BatchSimulator.Result result = out != null
+                ? BatchSimulator.run(settings.build(), out)
+                : BatchSimulator.run(settings.build());
+        System.out.printf("Simulated %d games in %.2f s (%.0f games/s, %.0f ticks/s): %d won, %d cut off%n%s%n",
+                result.getGames(), result.getElapsedNanos() / 1e9, result.getGamesPerSecond(),
+                result.getTicksPerSecond(), result.getWins(), result.getUnfinished(), result.getAnalytics());
+    }
+
+    // Runs an arena of bots for a number of ticks, paced to --tps if given, and prints the tick times
+    private static void runArena(String[] args) {
+        int snakes = Integer.parseInt(args[1]);
+        int width = 1024;
+        int height = 1024;
+        int food = snakes;
+        long ticks = 1000;
+        int ticksPerSecond = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 1;
+        for (int i = 2; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--board" -> {
+                    int x = value.indexOf('x');
+                    width = Integer.parseInt(value.substring(0, x));
+                    height = Integer.parseInt(value.substring(x + 1));
+                }
+                case "--food" -> food = Integer.parseInt(value);
+                case "--ticks" -> ticks = Long.parseLong(value);
+                case "--tps" -> ticksPerSecond = Integer.parseInt(value);
+                case "--threads" -> threads = Integer.parseInt(value);
+                case "--seed" -> seed = Long.parseLong(value);
+                default -> throw new IllegalArgumentException("Unknown option '" + args[i] + "'");
+            }
+        }
+
+        try (Arena arena = new Arena(width, height, food, true, threads, seed)) {
+            for (int i = 0; i < snakes; i++) {
+                arena.addSnake(new ArenaBot(seed * 31 + i));
+            }
+
+            LatencyHistogram tickTimes = new LatencyHistogram();
+            long period = ticksPerSecond > 0 ? 1_000_000_000L / ticksPerSecond : 0;
+            long overruns = 0;
+            long start = System.nanoTime();
+            long deadline = start;
+            for (long tick = 0; tick < ticks; tick++) {
+                long tickStart = System.nanoTime();
+                arena.step();
+                tickTimes.recordSince(tickStart);
+                if (period > 0) {
+                    deadline += period;
+                    long wait = deadline - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    } else {
+                        overruns++;
+                    }
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+
+            int longest = 0;
+            for (int snake = 0; snake < arena.getSnakeCount(); snake++) {
+                longest = Math.max(longest, arena.getLength(snake));
+            }
+            LatencyHistogram.Snapshot times = tickTimes.snapshot();
+            System.out.printf("%d snakes on %d x %d, %d threads: %d ticks in %.2f s (%.0f ticks/s), %d overruns%n"
+                            + "Tick p50 %s p99 %s max %s | %d alive, %d deaths, longest %d%n",
+                    snakes, width, height, threads, ticks, elapsed / 1e9, ticks / (elapsed / 1e9), overruns,
+                    Formatter.formatNanos(times.quantile(0.5)), Formatter.formatNanos(times.quantile(0.99)),
+                    Formatter.formatNanos(times.getMax()), arena.getAliveCount(), arena.getDeaths(), longest);
+        }
+    }
+
+    // Plays a replay file at full speed without a window and prints the outcome
+    private static void playReplay(String file) throws IOException {
+        Replay replay = ReplayService.read(Paths.get(file));
+        ReplayPlayer player = ReplayPlayer.headless(replay);
+
+        long start = System.nanoTime();
+        player.runToEnd();
+        long elapsed = System.nanoTime() - start;
+
+        SnakeEngine engine = player.getEngine();
+        System.out.printf("Replayed %d ticks in %.2f ms: score %d, moves %d, %s%n",
+                engine.getTicks(), elapsed / 1e6, engine.getScore(), engine.getMoves(),
+                engine.isWon() ? "won" : engine.isGameOver() ? "game over" : "unfinished");
+    }
 }
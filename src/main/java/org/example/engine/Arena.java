@@ -0,0 +1,491 @@
+package org.example.engine;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Many snakes on one shared board, each steered by its own {@link ArenaController}. A snake dies when
+ * it runs into a wall or any snake's body, and both die when two heads move into the same cell. Food
+ * keeps the board stocked, and a dead snake leaves food behind on every other cell of its body.
+ * <p>
+ * Every tick is resolved against the board as it was at the start of the tick, so the outcome does not
+ * depend on the order the snakes are looked at: all controllers decide, then every move is checked
+ * (a tail that moves away this tick is free, a head never is, so snakes cannot swap places), and only
+ * then are the survivors moved. The board is split into {@value #REGION_SIZE} x {@value #REGION_SIZE}
+ * regions; snakes are bucketed by the region of their head to decide and move, and by the region of
+ * the cell they are moving into to check collisions, so two heads meeting are always in the same
+ * bucket. Buckets run in parallel on a fork/join pool, splitting until a task has a few hundred snakes.
+ * The rest of a tick (deaths, food and respawns) is sequential and draws from one seeded generator,
+ * so a seed plays out the same on any number of threads.
+ * <p>
+ * Cells are packed as {@code y * width + x} and the board costs 4 bytes per cell. Not thread-safe:
+ * {@link #step()} and {@link #addSnake} must be called from one thread.
+ */
+public class Arena implements AutoCloseable {
+    public static final int REGION_SIZE = 64;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    // A task keeps splitting its range of regions until it holds at most this many snakes
+    private static final int SNAKES_PER_TASK = 256;
+
+    // Random cells tried when placing a snake or a food before giving up until the next tick
+    private static final int PLACEMENT_TRIES = 64;
+
+    // Board
+    @Getter
+    private final int width;
+    @Getter
+    private final int height;
+    private final int regionsX;
+    private final int regionCount;
+    private final int[] cells;  // 0 when empty, snake + 1, or -(food slot + 1)
+    private final SeededRandom random;
+    private final int foodTarget;
+    private final boolean respawn;
+    private final ForkJoinPool pool;  // null when running on the caller's thread
+    @Getter
+    private long ticks;
+
+    // Food cells, packed into [0, foodCount); each food cell stores its slot, so removal is a swap
+    private int[] food = new int[64];
+    @Getter
+    private int foodCount;
+
+    // Snakes, indexed by id
+    @Getter
+    private int snakeCount;
+    @Getter
+    private int aliveCount;
+    @Getter
+    private long deaths;
+    private ArenaController[] controllers = new ArenaController[0];
+    private SnakeBody[] bodies = new SnakeBody[0];
+    private byte[] headings = new byte[0];  // Direction ordinal
+    private boolean[] alive = new boolean[0];
+
+    // This tick's moves, indexed by snake id
+    private byte[] turns = new byte[0];
+    private int[] targets = new int[0];  // cell moved into, -1 through a wall
+    private boolean[] grows = new boolean[0];
+    private boolean[] dies = new boolean[0];
+
+    // Snakes bucketed by head region: order[headStart[r]] until order[headStart[r + 1]]
+    private int[] order = new int[0];
+    private final int[] headStart;
+    // Moves bucketed by target region, as target << 32 | snake
+    private long[] claims = new long[0];
+    private final int[] claimStart;
+    private final int[] cursor;
+
+    // Cells of the snakes that died this tick, half of which become food
+    private int[] dropped = new int[64];
+    private int droppedCount;
+
+    private final Pass decide = this::decide;
+    private final Pass resolve = this::resolve;
+    private final Pass retractTails = this::retractTails;
+    private final Pass advanceHeads = this::advanceHeads;
+
+    /**
+     * @param foodCount food kept on the board; eaten food is replaced the same tick
+     * @param respawn   whether dead snakes come back at a random spot on the next tick
+     * @param threads   threads to spread a tick over; 1 runs everything on the caller's thread
+     */
+    public Arena(int width, int height, int foodCount, boolean respawn, int threads, long seed) {
+        if (width < 10 || height < 10 || (long) width * height > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Unsupported arena size " + width + " x " + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.regionsX = (width + REGION_SIZE - 1) / REGION_SIZE;
+        this.regionCount = regionsX * ((height + REGION_SIZE - 1) / REGION_SIZE);
+        this.cells = new int[width * height];
+        this.random = new SeededRandom(seed);
+        this.foodTarget = foodCount;
+        this.respawn = respawn;
+        this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        this.headStart = new int[regionCount + 1];
+        this.claimStart = new int[regionCount + 1];
+        this.cursor = new int[regionCount];
+        addFood();
+    }
+
+    /**
+     * Adds a snake of length one at a random free spot, heading a random way, and returns its id.
+     */
+    public int addSnake(ArenaController controller) {
+        int snake = snakeCount;
+        ensureCapacity(snake + 1);
+        controllers[snake] = controller;
+        bodies[snake] = new SnakeBody();
+        snakeCount++;
+        if (!spawn(snake)) {
+            snakeCount--;
+            throw new IllegalStateException("No room for another snake on a " + width + " x " + height + " arena");
+        }
+        return snake;
+    }
+
+    /**
+     * Advances every living snake by one cell.
+     */
+    public void step() {
+        bucketByHeadRegion();
+        runParallel(headStart, decide);
+        bucketByTargetRegion();
+        runParallel(claimStart, resolve);
+        settle();
+        runParallel(headStart, retractTails);
+        runParallel(headStart, advanceHeads);
+        dropFood();
+        addFood();
+        if (respawn) {
+            for (int snake = 0; snake < snakeCount; snake++) {
+                if (!alive[snake]) {
+                    spawn(snake);
+                }
+            }
+        }
+        ticks++;
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    public boolean isAlive(int snake) {
+        return alive[snake];
+    }
+
+    public int getHeadCell(int snake) {
+        return bodies[snake].head();
+    }
+
+    public int getLength(int snake) {
+        return bodies[snake].size();
+    }
+
+    /**
+     * Returns the cell of the given snake's segment at the given position, where 0 is the head.
+     */
+    public int getSegmentCell(int snake, int index) {
+        return bodies[snake].get(index);
+    }
+
+    public Direction getHeading(int snake) {
+        return DIRECTIONS[headings[snake]];
+    }
+
+    /**
+     * Returns true if the snake may turn to the given direction, i.e. it would not reverse into itself.
+     */
+    public boolean canTurn(int snake, Direction turn) {
+        Direction heading = getHeading(snake);
+        return heading.getDx() != -turn.getDx() || heading.getDy() != -turn.getDy();
+    }
+
+    /**
+     * Returns true if the turn is allowed and differs from the snake's current direction.
+     */
+    public boolean isChangeOfDirection(int snake, Direction turn) {
+        return canTurn(snake, turn) && getHeading(snake) != turn;
+    }
+
+    public int getFoodCell(int index) {
+        return food[index];
+    }
+
+    public boolean isFood(int cell) {
+        return cells[cell] < 0;
+    }
+
+    /**
+     * Returns the id of the snake covering the cell, or -1 if there is none.
+     */
+    public int snakeAt(int cell) {
+        return Math.max(cells[cell], 0) - 1;
+    }
+
+    public boolean isHead(int cell) {
+        int snake = snakeAt(cell);
+        return snake >= 0 && bodies[snake].head() == cell;
+    }
+
+    /**
+     * Returns the cell next to the given one in the given direction, or -1 past the edge of the board.
+     */
+    public int neighbour(int cell, Direction direction) {
+        int x = cellX(cell) + direction.getDx();
+        int y = cellY(cell) + direction.getDy();
+        return x < 0 || x >= width || y < 0 || y >= height ? -1 : toCell(x, y);
+    }
+
+    public int cellX(int cell) {
+        return cell % width;
+    }
+
+    public int cellY(int cell) {
+        return cell / width;
+    }
+
+    public int toCell(int x, int y) {
+        return y * width + x;
+    }
+
+    private int regionOf(int cell) {
+        return cellY(cell) / REGION_SIZE * regionsX + cellX(cell) / REGION_SIZE;
+    }
+
+    // Counting sort of the living snakes by the region of their head
+    private void bucketByHeadRegion() {
+        Arrays.fill(headStart, 0);
+        for (int snake = 0; snake < snakeCount; snake++) {
+            if (alive[snake]) {
+                headStart[regionOf(bodies[snake].head()) + 1]++;
+            }
+        }
+        prefixSum(headStart);
+        for (int snake = 0; snake < snakeCount; snake++) {
+            if (alive[snake]) {
+                order[cursor[regionOf(bodies[snake].head())]++] = snake;
+            }
+        }
+    }
+
+    // Counting sort of this tick's moves by the region of the cell moved into
+    private void bucketByTargetRegion() {
+        Arrays.fill(claimStart, 0);
+        for (int snake = 0; snake < snakeCount; snake++) {
+            if (alive[snake] && targets[snake] >= 0) {
+                claimStart[regionOf(targets[snake]) + 1]++;
+            }
+        }
+        prefixSum(claimStart);
+        for (int snake = 0; snake < snakeCount; snake++) {
+            if (alive[snake] && targets[snake] >= 0) {
+                claims[cursor[regionOf(targets[snake])]++] = (long) targets[snake] << 32 | snake;
+            }
+        }
+    }
+
+    // Turns bucket counts (shifted by one) into bucket starts and resets the fill cursors to them
+    private void prefixSum(int[] start) {
+        for (int region = 0; region < regionCount; region++) {
+            start[region + 1] += start[region];
+            cursor[region] = start[region];
+        }
+    }
+
+    private void runParallel(int[] start, Pass pass) {
+        if (pool == null) {
+            pass.run(start[0], start[regionCount]);
+        } else {
+            pool.invoke(new Regions(start, pass, 0, regionCount));
+        }
+    }
+
+    // Asks the controllers of order[from, to) where to go. The board is read-only meanwhile.
+    private void decide(int from, int to) {
+        for (int i = from; i < to; i++) {
+            int snake = order[i];
+            Direction turn = controllers[snake].nextTurn(this, snake);
+            Direction heading = turn != null && canTurn(snake, turn) ? turn : getHeading(snake);
+            int target = neighbour(bodies[snake].head(), heading);
+            turns[snake] = (byte) heading.ordinal();
+            targets[snake] = target;
+            grows[snake] = target >= 0 && cells[target] < 0;
+            dies[snake] = target < 0;
+        }
+    }
+
+    // Checks claims[from, to) for collisions. A cell's claims all fall into the same range.
+    private void resolve(int from, int to) {
+        Arrays.sort(claims, from, to);
+        for (int i = from; i < to; ) {
+            int target = (int) (claims[i] >>> 32);
+            int end = i + 1;
+            while (end < to && (int) (claims[end] >>> 32) == target) {
+                end++;
+            }
+            if (end - i > 1) {
+                // Head to head: everyone moving into the cell dies
+                for (int j = i; j < end; j++) {
+                    dies[(int) claims[j]] = true;
+                }
+            } else if (isBlocked(target)) {
+                dies[(int) claims[i]] = true;
+            }
+            i = end;
+        }
+    }
+
+    // A snake's cell stays taken this tick, except a tail that moves on because its snake does not grow
+    private boolean isBlocked(int cell) {
+        int snake = snakeAt(cell);
+        if (snake < 0) {
+            return false;
+        }
+        SnakeBody body = bodies[snake];
+        return grows[snake] || body.size() == 1 || body.tail() != cell;
+    }
+
+    // Removes the dead and the food that is about to be eaten, in id order
+    private void settle() {
+        for (int snake = 0; snake < snakeCount; snake++) {
+            if (!alive[snake]) {
+                continue;
+            }
+            if (dies[snake]) {
+                kill(snake);
+            } else if (grows[snake]) {
+                removeFood(targets[snake]);
+            }
+        }
+    }
+
+    private void retractTails(int from, int to) {
+        for (int i = from; i < to; i++) {
+            int snake = order[i];
+            if (alive[snake] && !grows[snake]) {
+                cells[bodies[snake].removeTail()] = 0;
+            }
+        }
+    }
+
+    // Runs after every tail has moved, so a head may take the cell another snake's tail just left
+    private void advanceHeads(int from, int to) {
+        for (int i = from; i < to; i++) {
+            int snake = order[i];
+            if (alive[snake]) {
+                bodies[snake].addHead(targets[snake]);
+                cells[targets[snake]] = snake + 1;
+                headings[snake] = turns[snake];
+            }
+        }
+    }
+
+    private void kill(int snake) {
+        SnakeBody body = bodies[snake];
+        if (droppedCount + body.size() > dropped.length) {
+            dropped = Arrays.copyOf(dropped, Math.max(dropped.length * 2, droppedCount + body.size()));
+        }
+        for (int i = 0; i < body.size(); i++) {
+            int cell = body.get(i);
+            cells[cell] = 0;
+            dropped[droppedCount++] = cell;
+        }
+        body.clear();
+        alive[snake] = false;
+        aliveCount--;
+        deaths++;
+    }
+
+    private void dropFood() {
+        for (int i = 0; i < droppedCount; i += 2) {
+            if (cells[dropped[i]] == 0) {
+                putFood(dropped[i]);
+            }
+        }
+        droppedCount = 0;
+    }
+
+    // Tops the food up to the target at random free cells
+    private void addFood() {
+        for (int tries = 0; foodCount < foodTarget && tries < PLACEMENT_TRIES * (foodTarget - foodCount); tries++) {
+            int cell = random.nextInt(cells.length);
+            if (cells[cell] == 0) {
+                putFood(cell);
+            }
+        }
+    }
+
+    private void putFood(int cell) {
+        if (foodCount == food.length) {
+            food = Arrays.copyOf(food, food.length * 2);
+        }
+        food[foodCount] = cell;
+        cells[cell] = -(foodCount + 1);
+        foodCount++;
+    }
+
+    private void removeFood(int cell) {
+        int slot = -cells[cell] - 1;
+        int last = food[--foodCount];
+        food[slot] = last;
+        cells[last] = -(slot + 1);
+        cells[cell] = 0;
+    }
+
+    // Places the snake on a random free cell whose next cell is free too; false if none was found
+    private boolean spawn(int snake) {
+        for (int tries = 0; tries < PLACEMENT_TRIES; tries++) {
+            int cell = random.nextInt(cells.length);
+            Direction heading = DIRECTIONS[random.nextInt(DIRECTIONS.length)];
+            int next = neighbour(cell, heading);
+            if (cells[cell] != 0 || next < 0 || cells[next] != 0) {
+                continue;
+            }
+            bodies[snake].addHead(cell);
+            cells[cell] = snake + 1;
+            headings[snake] = (byte) heading.ordinal();
+            alive[snake] = true;
+            aliveCount++;
+            return true;
+        }
+        return false;
+    }
+
+    private void ensureCapacity(int snakes) {
+        if (snakes <= controllers.length) {
+            return;
+        }
+        int capacity = Math.max(16, controllers.length * 2);
+        controllers = Arrays.copyOf(controllers, capacity);
+        bodies = Arrays.copyOf(bodies, capacity);
+        headings = Arrays.copyOf(headings, capacity);
+        alive = Arrays.copyOf(alive, capacity);
+        turns = Arrays.copyOf(turns, capacity);
+        targets = Arrays.copyOf(targets, capacity);
+        grows = Arrays.copyOf(grows, capacity);
+        dies = Arrays.copyOf(dies, capacity);
+        order = Arrays.copyOf(order, capacity);
+        claims = Arrays.copyOf(claims, capacity);
+    }
+
+    // One phase of a tick over a range of the bucketed snakes or moves
+    private interface Pass {
+        void run(int from, int to);
+    }
+
+    // Runs a pass over regions [from, to), halving the range while it holds many snakes
+    private static class Regions extends RecursiveAction {
+        private final int[] start;
+        private final Pass pass;
+        private final int from;
+        private final int to;
+
+        private Regions(int[] start, Pass pass, int from, int to) {
+            this.start = start;
+            this.pass = pass;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1 && start[to] - start[from] > SNAKES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Regions(start, pass, from, middle), new Regions(start, pass, middle, to));
+            } else {
+                pass.run(start[from], start[to]);
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.engine;
+
+/**
+ * A cheap computer player for the {@link Arena}, meant to run by the thousand. It heads for the
+ * nearest of a few randomly sampled foods and looks one cell ahead: it never moves into a wall or a
+ * body if it can help it, avoids cells another head could also move into, and prefers cells with a
+ * way out. A decision costs the same whatever the size of the board and allocates nothing.
+ */
+public class ArenaBot implements ArenaController {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    // Foods sampled when choosing a new one to head for
+    private static final int FOOD_SAMPLES = 4;
+
+    private static final int CONTESTED_PENALTY = 1_000;
+    private static final int DEAD_END_PENALTY = 10_000;
+
+    private final SeededRandom random;
+    private int targetFood = -1;
+
+    public ArenaBot() {
+        this(SnakeEngine.newSeed());
+    }
+
+    /**
+     * @param seed makes the bot's choices repeatable; together with the arena seed, the whole arena
+     */
+    public ArenaBot(long seed) {
+        random = new SeededRandom(seed);
+    }
+
+    @Override
+    public Direction nextTurn(Arena arena, int snake) {
+        int head = arena.getHeadCell(snake);
+        if (targetFood < 0 || !arena.isFood(targetFood)) {
+            targetFood = pickFood(arena, head);
+        }
+
+        Direction best = null;
+        int bestScore = Integer.MIN_VALUE;
+        for (Direction direction : DIRECTIONS) {
+            int next = arena.neighbour(head, direction);
+            if (!arena.canTurn(snake, direction) || next < 0 || arena.snakeAt(next) >= 0) {
+                continue;
+            }
+
+            int score = targetFood >= 0 ? -distance(arena, next, targetFood) : 0;
+            int exits = 0;
+            for (Direction onward : DIRECTIONS) {
+                int beyond = arena.neighbour(next, onward);
+                if (beyond < 0 || beyond == head) {
+                    continue;
+                }
+                if (arena.snakeAt(beyond) < 0) {
+                    exits++;
+                } else if (arena.isHead(beyond)) {
+                    score -= CONTESTED_PENALTY;
+                }
+            }
+            if (exits == 0) {
+                score -= DEAD_END_PENALTY;
+            }
+            score = score * 2 + random.nextInt(2); // random tie-break
+
+            if (score > bestScore) {
+                bestScore = score;
+                best = direction;
+            }
+        }
+        return best; // null when boxed in: keep going and die
+    }
+
+    // The closest of a few random foods, or -1 when there is none
+    private int pickFood(Arena arena, int head) {
+        if (arena.getFoodCount() == 0) {
+            return -1;
+        }
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int i = 0; i < FOOD_SAMPLES; i++) {
+            int cell = arena.getFoodCell(random.nextInt(arena.getFoodCount()));
+            int distance = distance(arena, head, cell);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = cell;
+            }
+        }
+        return best;
+    }
+
+    private static int distance(Arena arena, int from, int to) {
+        return Math.abs(arena.cellX(from) - arena.cellX(to)) + Math.abs(arena.cellY(from) - arena.cellY(to));
+    }
+}
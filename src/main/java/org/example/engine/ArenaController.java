@@ -0,0 +1,13 @@
+package org.example.engine;
+
+/**
+ * Decides the turns of one snake in an {@link Arena}: a player's key presses ({@link InputQueue}) or a
+ * bot ({@link ArenaBot}). Called once per tick, possibly on a pool thread and at the same time as the
+ * controllers of other snakes, while the arena is read-only; a controller must only change its own state.
+ */
+public interface ArenaController {
+    /**
+     * Returns the direction the given snake should take on this tick, or null to keep going straight.
+     */
+    Direction nextTurn(Arena arena, int snake);
+}
@@ -0,0 +1,464 @@
+package org.example.engine;
+
+import java.util.Arrays;
+
+/**
+ * A computer player. Each time new food appears it plans a shortest path to it with A* and keeps
+ * the plan only if, after eating, the snake could still reach its own tail. Until such a path opens
+ * up it wanders along a Hamiltonian cycle of the board, taking only moves that keep the tail in
+ * reach; failing that it chases its tail, and as a last resort makes any move that survives the tick.
+ * <p>
+ * All search state lives in primitive arrays sized to the board and reused from tick to tick;
+ * "visited" marks are generation stamps, so nothing is cleared between searches and a decision
+ * allocates nothing. Following a plan costs O(1) per tick; a search costs about the length of the
+ * path it finds on an open board. Boards too large for per-cell arrays get a greedy walk to the
+ * food that only avoids the next collision.
+ */
+public class Autopilot implements SnakeController {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    // Above this many cells the per-cell arrays cost more memory than the game; steer greedily instead
+    private static final int MAX_SEARCH_CELLS = 1 << 22;
+
+    // Longest wait between attempts to find a safe path to the same food
+    private static final int MAX_RETRY_TICKS = 16;
+
+    // Ticks per board cell to wait for a safe path to the food before taking any path
+    private static final int PATIENCE_PER_CELL = 2;
+
+    // Board the arrays are sized for
+    private int width = -1;
+    private int height = -1;
+
+    // A* state, valid where seen[cell] == stamp
+    private int stamp;
+    private int[] seen;
+    private int[] closed;
+    private int[] cost;
+    private int[] parent;
+    private int[] blocked;  // virtual body cells for the safety check, valid where blocked[cell] == bodyStamp
+    private int bodyStamp;
+    private long[] heapKeys = new long[64];
+    private int[] heapCells = new int[64];
+    private int heapSize;
+    private boolean virtualBoard;  // true while searching the board as it would be after a plan
+    private int freeTail;          // tail cell when it moves out of the way this tick, otherwise -1
+    private int behindHead;        // cell a one-cell snake came from and cannot turn back to, otherwise -1
+
+    // Current plan: cells to walk through, in order, to reach plannedFood
+    private int[] plan;
+    private int planLength;
+    private int planIndex;
+    private int plannedFood = -1;
+    private long plannedAtTick;  // engine tick at which plannedFood appeared
+    private long retryAtTick;    // earliest tick to plan again after finding no safe path
+    private int retryDelay;
+
+    private byte[] cycle;  // direction ordinal to take from each cell, or null if the board has none
+    private final SeededRandom random;
+
+    public Autopilot() {
+        this(SnakeEngine.newSeed());
+    }
+
+    /**
+     * @param seed makes the player's choices repeatable; together with the engine seed, the whole game
+     */
+    public Autopilot(long seed) {
+        random = new SeededRandom(seed);
+    }
+
+    @Override
+    public Direction nextTurn(SnakeEngine engine) {
+        if (engine.isGameOver()) {
+            return null;
+        }
+        prepare(engine);
+        if (engine.getTicks() < plannedAtTick) {
+            plannedFood = -1; // a new game on the same engine
+        }
+
+        int head = engine.getHeadCell();
+        int food = engine.getFoodCell();
+        boolean growing = food == head; // eaten this tick; the new food is not placed until the step
+        int length = engine.getLength();
+        freeTail = growing || length < 3 ? -1 : engine.getSegmentCell(length - 1);
+        boolean moving = engine.getVelocityX() != 0 || engine.getVelocityY() != 0;
+        behindHead = length == 1 && moving
+                ? engine.toCell(engine.cellX(head) - engine.getVelocityX(), engine.cellY(head) - engine.getVelocityY())
+                : -1;
+        if (seen == null) {
+            return greedy(engine, head, food);
+        }
+
+        // Replan for new food, or when the plan no longer starts next to the head. Without a safe plan,
+        // retries back off since the body only opens up gradually.
+        boolean onPlan = food == plannedFood && planIndex < planLength && distance(head, plan[planIndex]) == 1
+                && !isBlocked(engine, plan[planIndex]);
+        if (!growing && !onPlan) {
+            planLength = 0;
+            if (food != plannedFood || engine.getTicks() >= retryAtTick) {
+                planTo(engine, food);
+            }
+        }
+        if (!growing && planIndex < planLength) {
+            return towards(engine, head, plan[planIndex++]);
+        }
+
+        // No safe path to the food: wander along the cycle while the tail stays in reach, which moves
+        // the body out of the way until a path opens up
+        Direction wander = wander(engine, head, food, growing);
+        if (wander != null) {
+            return wander;
+        }
+
+        // Otherwise chase the tail. While growing it stays put for a tick, so it must not be the very next cell.
+        if (length > 2 && search(engine, engine.getSegmentCell(length - 1), head) > (growing ? 1 : 0)) {
+            return towards(engine, head, parent[head]);
+        }
+        return fallback(engine, head);
+    }
+
+    /**
+     * Plans a path to the food and keeps it only if the snake can still reach its tail afterwards.
+     * The check is conservative, so a snake that has been waiting for a safe path for a long time
+     * takes an unchecked one rather than wander forever.
+     */
+    private void planTo(SnakeEngine engine, int food) {
+        if (food != plannedFood) {
+            plannedFood = food;
+            plannedAtTick = engine.getTicks();
+            retryDelay = 1;
+        }
+        planLength = 0;
+        planIndex = 0;
+        retryAtTick = engine.getTicks() + retryDelay;
+        retryDelay = Math.min(retryDelay * 2, MAX_RETRY_TICKS);
+
+        // Searched from the food, which is often walled in by the body when there is no path at all
+        int head = engine.getHeadCell();
+        int length = search(engine, food, head);
+        if (length <= 0) {
+            return;
+        }
+        int cell = head;
+        for (int i = 0; i < length; i++) {
+            cell = parent[cell];
+            plan[i] = cell;
+        }
+        if (canReachTailAfter(engine, length, false, 1)
+                || engine.getTicks() - plannedAtTick > (long) PATIENCE_PER_CELL * width * height) {
+            planLength = length;
+            retryDelay = 1;
+        }
+    }
+
+    /**
+     * Places the body where it would be after walking the first {@code pathLength} cells of the plan
+     * and checks that the head could then still get to the tail, so the snake can always fall back
+     * to following it.
+     *
+     * @param growing  the snake grows on the first of those moves
+     * @param tailWait ticks the tail then stays where it is, so the head must not get there sooner
+     */
+    private boolean canReachTailAfter(SnakeEngine engine, int pathLength, boolean growing, int tailWait) {
+        int length = engine.getLength() + (growing ? 1 : 0);
+        if (length < 4) {
+            return true; // too short to trap itself
+        }
+
+        if (++bodyStamp == Integer.MAX_VALUE) {
+            Arrays.fill(blocked, 0);
+            bodyStamp = 1;
+        }
+        int virtualTail = -1;
+        for (int k = 0; k < length; k++) {
+            int cell = k < pathLength ? plan[pathLength - 1 - k] : engine.getSegmentCell(k - pathLength);
+            if (k == length - 1) {
+                virtualTail = cell;
+            } else {
+                blocked[cell] = bodyStamp;
+            }
+        }
+
+        // Searched from the tail: when it is walled in, its pocket is small and the search ends quickly
+        virtualBoard = true;
+        try {
+            return search(engine, virtualTail, plan[pathLength - 1]) > tailWait;
+        } finally {
+            virtualBoard = false;
+        }
+    }
+
+    /**
+     * A* from {@code from} to {@code target} with the Manhattan distance, through cells that are free
+     * on the next tick (or on the virtual board). Returns the path length in moves, or -1 if the
+     * target cannot be reached. Each cell's parent is its next step back towards {@code from}.
+     */
+    private int search(SnakeEngine engine, int from, int target) {
+        nextStamp();
+        heapSize = 0;
+
+        seen[from] = stamp;
+        cost[from] = 0;
+        parent[from] = -1;
+        push(from, distance(from, target), 0);
+
+        while (heapSize > 0) {
+            int cell = pop();
+            if (cell == target) {
+                return cost[cell];
+            }
+            if (closed[cell] == stamp) {
+                continue;
+            }
+            closed[cell] = stamp;
+
+            int x = cell % width;
+            int y = cell / width;
+            int nextCost = cost[cell] + 1;
+            for (Direction direction : DIRECTIONS) {
+                int nx = x + direction.getDx();
+                int ny = y + direction.getDy();
+                if (nx < 0 || ny < 0 || nx >= width || ny >= height) {
+                    continue;
+                }
+                int next = ny * width + nx;
+                if (next == target) {
+                    if (cell == behindHead && !virtualBoard) {
+                        continue; // the head is the target and would have to reverse
+                    }
+                } else if (virtualBoard ? blocked[next] == bodyStamp : isBlocked(engine, next)) {
+                    continue;
+                }
+                if (seen[next] != stamp || nextCost < cost[next]) {
+                    seen[next] = stamp;
+                    cost[next] = nextCost;
+                    parent[next] = cell;
+                    push(next, nextCost + distance(next, target), nextCost);
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * A safe move after which the head can still reach the tail: the cycle's own move if possible,
+     * otherwise one of the others picked at random, so the snake cannot settle into a loop that never
+     * gets it to the food. When the move may be onto food (new food can land on the very cell the
+     * head moves into) the tail stays put for another tick.
+     */
+    private Direction wander(SnakeEngine engine, int head, int food, boolean growing) {
+        planLength = 0;
+        planIndex = 0;
+        int x = head % width;
+        int y = head / width;
+        int offset = random.nextInt(DIRECTIONS.length);
+        for (int i = -1; i < DIRECTIONS.length; i++) {
+            if (i < 0 && cycle == null) {
+                continue;
+            }
+            Direction direction = i < 0 ? DIRECTIONS[cycle[head]] : DIRECTIONS[(offset + i) % DIRECTIONS.length];
+            int nx = x + direction.getDx();
+            int ny = y + direction.getDy();
+            if (isSafeMove(engine, nx, ny, direction)) {
+                plan[0] = ny * width + nx;
+                if (canReachTailAfter(engine, 1, growing, growing || plan[0] == food ? 1 : 0)) {
+                    return direction;
+                }
+            }
+        }
+        return null;
+    }
+
+    // The safe move that gets closest to the food
+    private Direction greedy(SnakeEngine engine, int head, int food) {
+        int x = head % width;
+        int y = head / width;
+        Direction best = null;
+        int bestDistance = Integer.MAX_VALUE;
+        for (Direction direction : DIRECTIONS) {
+            int nx = x + direction.getDx();
+            int ny = y + direction.getDy();
+            if (isSafeMove(engine, nx, ny, direction)) {
+                int d = Math.abs(nx - food % width) + Math.abs(ny - food / width);
+                if (d < bestDistance) {
+                    best = direction;
+                    bestDistance = d;
+                }
+            }
+        }
+        return best;
+    }
+
+    // Follows the Hamiltonian cycle if it can, otherwise takes any move that survives the tick
+    private Direction fallback(SnakeEngine engine, int head) {
+        int x = head % width;
+        int y = head / width;
+        if (cycle != null) {
+            Direction direction = DIRECTIONS[cycle[head]];
+            if (isSafeMove(engine, x + direction.getDx(), y + direction.getDy(), direction)) {
+                return direction;
+            }
+        }
+        for (Direction direction : DIRECTIONS) {
+            if (isSafeMove(engine, x + direction.getDx(), y + direction.getDy(), direction)) {
+                return direction;
+            }
+        }
+        return null; // boxed in
+    }
+
+    private boolean isSafeMove(SnakeEngine engine, int x, int y, Direction direction) {
+        return x >= 0 && y >= 0 && x < width && y < height && engine.canTurn(direction)
+                && !isBlocked(engine, y * width + x);
+    }
+
+    // A cell the head cannot move into on the next tick
+    private boolean isBlocked(SnakeEngine engine, int cell) {
+        return engine.isOccupied(cell) && cell != freeTail;
+    }
+
+    private Direction towards(SnakeEngine engine, int from, int to) {
+        int dx = to % width - from % width;
+        int dy = to / width - from / width;
+        for (Direction direction : DIRECTIONS) {
+            if (direction.getDx() == dx && direction.getDy() == dy) {
+                return direction;
+            }
+        }
+        throw new IllegalStateException("Cells " + from + " and " + to + " are not adjacent on " + engine.getGridWidth() + " columns");
+    }
+
+    private int distance(int from, int to) {
+        return Math.abs(from % width - to % width) + Math.abs(from / width - to / width);
+    }
+
+    // Binary min-heap ordered by estimated total cost, ties going to the node furthest along
+    private void push(int cell, int estimate, int costSoFar) {
+        if (heapSize == heapCells.length) {
+            heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+            heapCells = Arrays.copyOf(heapCells, heapSize * 2);
+        }
+        long key = ((long) estimate << 32) | (Integer.MAX_VALUE - costSoFar);
+        int i = heapSize++;
+        while (i > 0) {
+            int up = (i - 1) >>> 1;
+            if (heapKeys[up] <= key) {
+                break;
+            }
+            heapKeys[i] = heapKeys[up];
+            heapCells[i] = heapCells[up];
+            i = up;
+        }
+        heapKeys[i] = key;
+        heapCells[i] = cell;
+    }
+
+    private int pop() {
+        int top = heapCells[0];
+        long key = heapKeys[--heapSize];
+        int cell = heapCells[heapSize];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) {
+                child++;
+            }
+            if (key <= heapKeys[child]) {
+                break;
+            }
+            heapKeys[i] = heapKeys[child];
+            heapCells[i] = heapCells[child];
+            i = child;
+        }
+        heapKeys[i] = key;
+        heapCells[i] = cell;
+        return top;
+    }
+
+    private void nextStamp() {
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(seen, 0);
+            Arrays.fill(closed, 0);
+            stamp = 1;
+        }
+    }
+
+    // Sizes the arrays for the engine's board the first time it is seen
+    private void prepare(SnakeEngine engine) {
+        if (engine.getGridWidth() == width && engine.getGridHeight() == height) {
+            return;
+        }
+        width = engine.getGridWidth();
+        height = engine.getGridHeight();
+        long cells = (long) width * height;
+        if (cells > MAX_SEARCH_CELLS) {
+            seen = closed = cost = parent = blocked = plan = null;
+            cycle = null;
+            return;
+        }
+        int size = (int) cells;
+        seen = new int[size];
+        closed = new int[size];
+        cost = new int[size];
+        parent = new int[size];
+        blocked = new int[size];
+        plan = new int[size];
+        stamp = 0;
+        bodyStamp = 0;
+        planLength = 0;
+        planIndex = 0;
+        plannedFood = -1;
+        cycle = buildCycle(width, height);
+    }
+
+    /**
+     * A cycle through every cell: along the rows in a zigzag that leaves column 0 free, then back up
+     * column 0 (transposed when only the width is even). Boards with two odd sides have none.
+     */
+    private static byte[] buildCycle(int width, int height) {
+        boolean transpose = height % 2 != 0;
+        if (transpose && width % 2 != 0) {
+            return null;
+        }
+        int rows = transpose ? width : height;
+        int columns = transpose ? height : width;
+
+        byte[] cycle = new byte[width * height];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                Direction direction;
+                if (c == 0) {
+                    direction = r == 0 ? Direction.RIGHT : Direction.UP;
+                } else if (r % 2 == 0) {
+                    direction = c < columns - 1 ? Direction.RIGHT : Direction.DOWN;
+                } else if (r == rows - 1) {
+                    direction = Direction.LEFT;
+                } else {
+                    direction = c > 1 ? Direction.LEFT : Direction.DOWN;
+                }
+                if (transpose) {
+                    direction = transpose(direction);
+                    cycle[c * width + r] = (byte) direction.ordinal();
+                } else {
+                    cycle[r * width + c] = (byte) direction.ordinal();
+                }
+            }
+        }
+        return cycle;
+    }
+
+    // Mirrors a direction across the main diagonal
+    private static Direction transpose(Direction direction) {
+        return switch (direction) {
+            case UP -> Direction.LEFT;
+            case DOWN -> Direction.RIGHT;
+            case LEFT -> Direction.UP;
+            case RIGHT -> Direction.DOWN;
+        };
+    }
+}
@@ -0,0 +1,19 @@
+package org.example.engine;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * The four directions the snake can travel in, expressed as a grid delta.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum Direction {
+    UP(0, -1),
+    DOWN(0, 1),
+    LEFT(-1, 0),
+    RIGHT(1, 0);
+
+    private final int dx;
+    private final int dy;
+}
@@ -0,0 +1,124 @@
+package org.example.engine;
+
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import org.example.metrics.Metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Fixed-timestep game loop on its own thread, timed with {@link System#nanoTime()}.
+ * <p>
+ * The simulation always advances in whole steps of {@code 1 / tickRateHz} seconds. Time that
+ * passes while the thread is descheduled (GC pause, slow frame) is caught up by running several
+ * ticks back to back, so simulated time keeps pace with wall time instead of stretching. Between
+ * ticks the renderer is called at the frame rate with how far (0..1) the clock is into the next
+ * tick, which it can use to interpolate.
+ */
+@Log4j2
+public class GameLoop {
+    // Upper bound on ticks run back to back before giving up on catching up
+    private static final int MAX_CATCH_UP_TICKS = 25;
+
+    @Getter
+    private final int tickRateHz;
+    private final long stepNanos;
+    private final long frameNanos;
+    private final Runnable tick;
+    private final DoubleConsumer render;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    /**
+     * @param tickRateHz  simulation ticks per second, e.g. 10, 30, 60 or 120
+     * @param frameRateHz render calls per second
+     * @param tick        advances the simulation by one step
+     * @param render      draws a frame; receives the interpolation factor between the last two ticks
+     */
+    public GameLoop(int tickRateHz, int frameRateHz, Runnable tick, DoubleConsumer render) {
+        this.tickRateHz = tickRateHz;
+        this.stepNanos = TimeUnit.SECONDS.toNanos(1) / tickRateHz;
+        this.frameNanos = TimeUnit.SECONDS.toNanos(1) / frameRateHz;
+        this.tick = tick;
+        this.render = render;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+
+        // Let a previous run finish its last iteration so two loops never tick the same game
+        if (thread != null && thread != Thread.currentThread()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.error("Interrupted while waiting for the previous game loop to stop", e);
+                return;
+            }
+        }
+        running = true;
+        thread = new Thread(this::run, "snake-game-loop");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the loop after the current tick. Safe to call from inside a tick.
+     */
+    public synchronized void stop() {
+        running = false;
+        if (thread != null && thread != Thread.currentThread()) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run() {
+        log.info("Game loop started at {} Hz on thread: {}", tickRateHz, Thread.currentThread().getName());
+
+        long previous = System.nanoTime();
+        long accumulator = 0;
+
+        while (running) {
+            long now = System.nanoTime();
+            accumulator += now - previous;
+            previous = now;
+
+            // Run as many whole ticks as the elapsed time covers
+            int steps = 0;
+            while (running && accumulator >= stepNanos) {
+                if (steps == MAX_CATCH_UP_TICKS) {
+                    log.warn("Game loop fell {} ticks behind; skipping ahead", accumulator / stepNanos);
+                    Metrics.LOOP_OVERRUNS.increment();
+                    accumulator %= stepNanos;
+                    break;
+                }
+                tick.run();
+                accumulator -= stepNanos;
+                steps++;
+            }
+
+            if (!running) {
+                break;
+            }
+            render.accept((double) accumulator / stepNanos);
+
+            // Sleep until whichever comes first: the next frame or the next tick
+            long untilTick = stepNanos - accumulator;
+            long wait = Math.min(frameNanos, untilTick) - (System.nanoTime() - now);
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+            }
+        }
+
+        log.info("Game loop stopped on thread: {}", Thread.currentThread().getName());
+    }
+}
@@ -0,0 +1,104 @@
+package org.example.engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded single-producer/single-consumer ring buffer of turn requests. The input thread (the EDT)
+ * offers key presses and the simulation thread takes at most one applicable turn per tick, so quick
+ * presses are applied in order on consecutive ticks instead of overwriting each other.
+ * <p>
+ * Lock-free: each side only writes its own index and publishes it with an ordered store.
+ */
+public class InputQueue implements SnakeController, ArenaController {
+    private final Direction[] buffer;
+    private final long[] offeredAt;  // System.nanoTime() of each offer, for input latency
+    private final int mask;
+    private final AtomicLong readIndex = new AtomicLong();   // written by the consumer only
+    private final AtomicLong writeIndex = new AtomicLong();  // written by the producer only
+    private long lastOfferedAt;                               // consumer side
+
+    /**
+     * @param capacity maximum number of pending turns; rounded up to a power of two
+     */
+    public InputQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        buffer = new Direction[size];
+        offeredAt = new long[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Producer side. Returns false and drops the turn when the queue is full.
+     */
+    public boolean offer(Direction turn) {
+        long write = writeIndex.get();
+        if (write - readIndex.get() == buffer.length) {
+            return false;
+        }
+        buffer[(int) write & mask] = turn;
+        offeredAt[(int) write & mask] = System.nanoTime();
+        writeIndex.lazySet(write + 1);
+        return true;
+    }
+
+    /**
+     * Consumer side. Returns the oldest pending turn, or null when the queue is empty.
+     */
+    public Direction poll() {
+        long read = readIndex.get();
+        if (read == writeIndex.get()) {
+            return null;
+        }
+        Direction turn = buffer[(int) read & mask];
+        buffer[(int) read & mask] = null;
+        lastOfferedAt = offeredAt[(int) read & mask];
+        readIndex.lazySet(read + 1);
+        return turn;
+    }
+
+    /**
+     * Consumer side. Takes pending turns until one would actually change the snake's direction and
+     * returns it, discarding reversals and repeats on the way. Returns null when none is pending.
+     */
+    @Override
+    public Direction nextTurn(SnakeEngine engine) {
+        Direction turn;
+        while ((turn = poll()) != null) {
+            if (engine.isChangeOfDirection(turn)) {
+                return turn;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Consumer side. The same for a player's snake in an arena.
+     */
+    @Override
+    public Direction nextTurn(Arena arena, int snake) {
+        Direction turn;
+        while ((turn = poll()) != null) {
+            if (arena.isChangeOfDirection(snake, turn)) {
+                return turn;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Consumer side. The {@link System#nanoTime()} at which the turn last returned by {@link #poll()}
+     * or {@link #nextTurn} was offered.
+     */
+    public long getLastOfferedAt() {
+        return lastOfferedAt;
+    }
+
+    /**
+     * Consumer side. Drops every pending turn.
+     */
+    public void clear() {
+        while (poll() != null) {
+            // discard
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.example.engine;
+
+/**
+ * One bit per board cell telling whether the snake currently covers it. Kept in step with
+ * {@link SnakeBody} as the head advances and the tail retracts, so "is this cell taken?" is a
+ * single array lookup instead of a walk over the body.
+ * <p>
+ * The bits are stored in chunks of 4096 consecutive cells that are only allocated while at least
+ * one of their cells is taken, so a 10,000 x 10,000 board costs memory in proportion to the snake,
+ * not to the board.
+ * <p>
+ * {@link #selectFree(int)} finds the n-th free cell in cell order. The answer depends only on which
+ * cells are taken, not on the order they were taken in, so food placed with it can be reproduced
+ * from the snake's cells alone.
+ */
+public class OccupancyGrid {
+    private static final int CHUNK_SHIFT = 12;                    // 4096 cells per chunk
+    private static final int CHUNK_CELLS = 1 << CHUNK_SHIFT;
+    private static final int WORDS_PER_CHUNK = CHUNK_CELLS >>> 6;
+
+    private final int cellCount;
+    private final long[][] chunks;
+    private final int[] population;  // taken cells per chunk, to know when a chunk can be dropped
+    private int allocatedChunks;
+
+    public OccupancyGrid(int cellCount) {
+        this.cellCount = cellCount;
+        int chunkCount = (cellCount + CHUNK_CELLS - 1) >>> CHUNK_SHIFT;
+        chunks = new long[chunkCount][];
+        population = new int[chunkCount];
+    }
+
+    public boolean isOccupied(int cell) {
+        long[] chunk = chunks[cell >>> CHUNK_SHIFT];
+        return chunk != null && (chunk[wordIndex(cell)] & (1L << cell)) != 0;
+    }
+
+    public void set(int cell) {
+        int chunkIndex = cell >>> CHUNK_SHIFT;
+        long[] chunk = chunks[chunkIndex];
+        if (chunk == null) {
+            chunk = new long[WORDS_PER_CHUNK];
+            chunks[chunkIndex] = chunk;
+            allocatedChunks++;
+        }
+
+        long bit = 1L << cell;
+        if ((chunk[wordIndex(cell)] & bit) == 0) {
+            chunk[wordIndex(cell)] |= bit;
+            population[chunkIndex]++;
+        }
+    }
+
+    public void clear(int cell) {
+        int chunkIndex = cell >>> CHUNK_SHIFT;
+        long[] chunk = chunks[chunkIndex];
+        long bit = 1L << cell;
+        if (chunk == null || (chunk[wordIndex(cell)] & bit) == 0) {
+            return;
+        }
+
+        chunk[wordIndex(cell)] &= ~bit;
+        if (--population[chunkIndex] == 0) {
+            chunks[chunkIndex] = null;
+            allocatedChunks--;
+        }
+    }
+
+    public void clearAll() {
+        if (allocatedChunks == 0) {
+            return;
+        }
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = null;
+            population[i] = 0;
+        }
+        allocatedChunks = 0;
+    }
+
+    /**
+     * Makes this grid an exact copy of another one of the same size.
+     */
+    public void copyFrom(OccupancyGrid other) {
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = other.chunks[i] == null ? null : other.chunks[i].clone();
+            population[i] = other.population[i];
+        }
+        allocatedChunks = other.allocatedChunks;
+    }
+
+    /**
+     * Returns the free cell with the given rank in cell order, where 0 is the lowest free cell, or -1
+     * if fewer cells are free. Whole chunks are skipped by their population, so this costs one step
+     * per chunk plus a scan of one chunk's words.
+     */
+    public int selectFree(int rank) {
+        int remaining = rank;
+        for (int chunkIndex = 0; chunkIndex < chunks.length; chunkIndex++) {
+            int base = chunkIndex << CHUNK_SHIFT;
+            int free = Math.min(CHUNK_CELLS, cellCount - base) - population[chunkIndex];
+            if (remaining >= free) {
+                remaining -= free;
+                continue;
+            }
+
+            long[] chunk = chunks[chunkIndex];
+            if (chunk == null) {
+                return base + remaining;
+            }
+            // Bits past the end of the board read as free, but they come after every real free cell
+            for (int word = 0; ; word++) {
+                long freeBits = ~chunk[word];
+                int count = Long.bitCount(freeBits);
+                if (remaining < count) {
+                    for (; remaining > 0; remaining--) {
+                        freeBits &= freeBits - 1; // drop the lowest free cell
+                    }
+                    return base + (word << 6) + Long.numberOfTrailingZeros(freeBits);
+                }
+                remaining -= count;
+            }
+        }
+        return -1;
+    }
+
+    public int getAllocatedChunks() {
+        return allocatedChunks;
+    }
+
+    private static int wordIndex(int cell) {
+        return (cell >>> 6) & (WORDS_PER_CHUNK - 1);
+    }
+}
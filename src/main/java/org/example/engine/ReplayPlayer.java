@@ -0,0 +1,137 @@
+package org.example.engine;
+
+import lombok.Getter;
+import org.example.model.Replay;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Plays a {@link Replay} back through a {@link SnakeEngine}, either one tick at a time (for the UI)
+ * or as fast as possible with {@link #runToEnd()}.
+ * <p>
+ * While playing, a {@link SnakeEngine.Keyframe} is kept every {@value #KEYFRAME_INTERVAL} ticks. It
+ * holds the snake's cells and a few counters, not the board, so even a long game on a large board keeps
+ * its keyframes small. Seeking restores the closest keyframe at or before the target and only simulates
+ * the remaining ticks.
+ */
+public class ReplayPlayer {
+    public static final int KEYFRAME_INTERVAL = 500;
+
+    @Getter
+    private final Replay replay;
+    @Getter
+    private final SnakeEngine engine;
+
+    // Decoded inputs: the tick each turn is applied on, and the turn
+    private final long[] inputTicks;
+    private final Direction[] inputTurns;
+    private int nextInput;
+
+    private final List<SnakeEngine.Keyframe> keyframes = new ArrayList<>();  // index i holds tick i * KEYFRAME_INTERVAL
+
+    /**
+     * Restarts the given engine from the replay's seed. The engine must have the replay's board size.
+     */
+    public ReplayPlayer(Replay replay, SnakeEngine engine) {
+        if (engine.getGridWidth() != replay.getGridWidth() || engine.getGridHeight() != replay.getGridHeight()) {
+            throw new IllegalArgumentException("Replay board is " + replay.getGridWidth() + "x" + replay.getGridHeight()
+                    + " but the engine board is " + engine.getGridWidth() + "x" + engine.getGridHeight());
+        }
+        this.replay = replay;
+        this.engine = engine;
+
+        // Decode the varint gaps into absolute ticks
+        byte[] inputs = replay.getInputs();
+        long[] ticks = new long[inputs.length / 2];
+        Direction[] turns = new Direction[inputs.length / 2];
+        Direction[] directions = Direction.values();
+        int count = 0;
+        long tick = 0;
+        for (int i = 0; i < inputs.length; ) {
+            long gap = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = inputs[i++];
+                gap |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            tick += gap;
+            ticks[count] = tick;
+            turns[count] = directions[inputs[i++]];
+            count++;
+        }
+        this.inputTicks = Arrays.copyOf(ticks, count);
+        this.inputTurns = Arrays.copyOf(turns, count);
+
+        engine.reset(replay.getSeed());
+        keyframes.add(engine.keyframe());
+    }
+
+    /**
+     * Creates a player with its own engine, for headless playback.
+     */
+    public static ReplayPlayer headless(Replay replay) {
+        SnakeEngine engine = new SnakeEngine(replay.getGridWidth(), replay.getGridHeight(), replay.getGameMode(),
+                replay.getTicksPerSecond(), replay.getSeed());
+        return new ReplayPlayer(replay, engine);
+    }
+
+    /**
+     * Plays one tick. Returns false once the recording is over.
+     */
+    public boolean step() {
+        if (isFinished()) {
+            return false;
+        }
+
+        long tick = engine.getTicks();
+        Direction turn = null;
+        if (nextInput < inputTicks.length && inputTicks[nextInput] == tick) {
+            turn = inputTurns[nextInput++];
+        }
+        engine.step(turn);
+
+        // Keep a keyframe the first time we pass each interval
+        long now = engine.getTicks();
+        if (now % KEYFRAME_INTERVAL == 0 && now / KEYFRAME_INTERVAL == keyframes.size() && !engine.isGameOver()) {
+            keyframes.add(engine.keyframe());
+        }
+        return true;
+    }
+
+    /**
+     * Plays the rest of the recording as fast as possible.
+     */
+    public void runToEnd() {
+        while (step()) {
+            // keep going
+        }
+    }
+
+    /**
+     * Moves playback to the given tick, backwards or forwards.
+     */
+    public void seek(long targetTick) {
+        long target = Math.max(0, Math.min(targetTick, replay.getTotalTicks()));
+
+        // Jump to the closest keyframe unless simply playing forward is shorter
+        int keyframe = (int) Math.min(target / KEYFRAME_INTERVAL, keyframes.size() - 1);
+        long keyframeTick = (long) keyframe * KEYFRAME_INTERVAL;
+        if (target < engine.getTicks() || keyframeTick > engine.getTicks()) {
+            engine.restore(keyframes.get(keyframe));
+            int index = Arrays.binarySearch(inputTicks, keyframeTick);
+            nextInput = index >= 0 ? index : -index - 1;
+        }
+
+        while (engine.getTicks() < target && step()) {
+            // fast-forward
+        }
+    }
+
+    public boolean isFinished() {
+        return engine.isGameOver() || engine.getTicks() >= replay.getTotalTicks();
+    }
+}
@@ -0,0 +1,64 @@
+package org.example.engine;
+
+import org.example.model.Replay;
+
+import java.util.Arrays;
+
+/**
+ * Records the turns fed to a {@link SnakeEngine} so the session can be replayed later. Only ticks
+ * that carry a turn are stored, each as a varint tick gap plus one direction byte, so a typical
+ * game takes a few bytes per turn regardless of how many ticks it lasted.
+ */
+public class ReplayRecorder {
+    private byte[] inputs = new byte[64];
+    private int length;
+    private long lastTick;
+
+    /**
+     * Call once per tick, before {@link SnakeEngine#step(Direction)}, with the turn about to be passed in.
+     * Turns the engine would ignore are not stored.
+     */
+    public void record(SnakeEngine engine, Direction turn) {
+        if (turn == null || !engine.isChangeOfDirection(turn)) {
+            return;
+        }
+        ensureCapacity(11);
+        long tick = engine.getTicks();
+
+        // Unsigned LEB128 varint of the gap since the previous turn
+        long gap = tick - lastTick;
+        while ((gap & ~0x7FL) != 0) {
+            inputs[length++] = (byte) ((gap & 0x7F) | 0x80);
+            gap >>>= 7;
+        }
+        inputs[length++] = (byte) gap;
+        inputs[length++] = (byte) turn.ordinal();
+        lastTick = tick;
+    }
+
+    /**
+     * Builds the replay for the session the engine just played.
+     */
+    public Replay finish(SnakeEngine engine) {
+        return Replay.builder()
+                .seed(engine.getSeed())
+                .gridWidth(engine.getGridWidth())
+                .gridHeight(engine.getGridHeight())
+                .gameMode(engine.getGameMode())
+                .ticksPerSecond(engine.getTicksPerSecond())
+                .totalTicks(engine.getTicks())
+                .inputs(Arrays.copyOf(inputs, length))
+                .build();
+    }
+
+    public void clear() {
+        length = 0;
+        lastTick = 0;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > inputs.length) {
+            inputs = Arrays.copyOf(inputs, Math.max(inputs.length * 2, length + extra));
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package org.example.engine;
+
+import java.util.Random;
+
+/**
+ * Deterministic random source for one game session (SplitMix64). Unlike {@link Random} its whole
+ * state is a single long that can be copied, so an engine snapshot taken mid-game continues with
+ * exactly the same food and timed-mode rolls as the original.
+ */
+public class SeededRandom extends Random {
+    private long state;
+
+    public SeededRandom(long seed) {
+        super(seed); // calls setSeed
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        state = seed;
+    }
+
+    @Override
+    protected int next(int bits) {
+        state += 0x9E3779B97F4A7C15L;
+        long z = state;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return (int) (z >>> (64 - bits));
+    }
+
+    /**
+     * The whole generator state; {@code new SeededRandom(getState())} continues with the same values.
+     */
+    public long getState() {
+        return state;
+    }
+
+    public SeededRandom copy() {
+        SeededRandom copy = new SeededRandom(0);
+        copy.state = state;
+        return copy;
+    }
+}
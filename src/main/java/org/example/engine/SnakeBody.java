@@ -0,0 +1,78 @@
+package org.example.engine;
+
+/**
+ * Snake segments stored as a circular buffer of packed cell indexes ({@code y * width + x}).
+ * Advancing the snake only writes a new head and optionally drops the tail, so a tick costs the
+ * same no matter how long the snake is. The buffer doubles when it fills up.
+ */
+public class SnakeBody {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int[] cells = new int[INITIAL_CAPACITY];
+    private int headIndex;  // slot holding the head
+    private int size;
+
+    /**
+     * Adds a new head in front of the current one.
+     */
+    public void addHead(int cell) {
+        if (size == cells.length) {
+            grow();
+        }
+        headIndex = (headIndex - 1) & (cells.length - 1);
+        cells[headIndex] = cell;
+        size++;
+    }
+
+    /**
+     * Removes the last segment and returns its cell.
+     */
+    public int removeTail() {
+        int tail = tail();
+        size--;
+        return tail;
+    }
+
+    public int head() {
+        return cells[headIndex];
+    }
+
+    public int tail() {
+        return get(size - 1);
+    }
+
+    /**
+     * Returns the cell of the segment at the given position, where 0 is the head.
+     */
+    public int get(int index) {
+        return cells[(headIndex + index) & (cells.length - 1)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Makes this body an exact copy of another one.
+     */
+    public void copyFrom(SnakeBody other) {
+        cells = other.cells.clone();
+        headIndex = other.headIndex;
+        size = other.size;
+    }
+
+    public void clear() {
+        headIndex = 0;
+        size = 0;
+    }
+
+    // Capacity is always a power of two so wrapping is a mask instead of a modulo
+    private void grow() {
+        int[] grown = new int[cells.length * 2];
+        for (int i = 0; i < size; i++) {
+            grown[i] = get(i);
+        }
+        cells = grown;
+        headIndex = 0;
+    }
+}
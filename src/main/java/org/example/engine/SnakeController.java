@@ -0,0 +1,13 @@
+package org.example.engine;
+
+/**
+ * Decides the snake's turns: the player's key presses ({@link InputQueue}) or a computer player
+ * ({@link Autopilot}). Called on the simulation thread once per tick, just before
+ * {@link SnakeEngine#step(Direction)}.
+ */
+public interface SnakeController {
+    /**
+     * Returns the direction to take on this tick, or null to keep going straight.
+     */
+    Direction nextTurn(SnakeEngine engine);
+}
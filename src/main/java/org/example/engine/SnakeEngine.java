@@ -0,0 +1,422 @@
+package org.example.engine;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Headless snake simulation. Holds the complete game state and advances it one tick per call to
+ * {@link #step(Direction)}. Has no AWT/Swing dependency, so it can be driven by the UI timer,
+ * a test, or a batch simulation at whatever speed the caller wants.
+ * <p>
+ * Cells are addressed by a packed index {@code y * gridWidth + x}; see {@link #cellX(int)} and
+ * {@link #cellY(int)}.
+ * <p>
+ * Every session is driven by a {@link SeededRandom} created from its seed, so the same seed and the
+ * same turns on the same ticks always play out identically. Food goes to the free cell picked by rank
+ * in cell order, which depends only on where the snake is, so a small {@link Keyframe} (the snake's
+ * cells, the food, the generator state and the counters) is enough to resume a game exactly.
+ */
+@Getter
+public class SnakeEngine {
+    public static final int DEFAULT_TICKS_PER_SECOND = 10;
+
+    // Boards up to this many cells pick food by rank among the free cells; bigger ones sample by rejection
+    private static final int RANKED_FOOD_LIMIT = 1 << 22;
+
+    // Beyond this many pending dirty cells a full redraw is cheaper than tracking them
+    private static final int MAX_DIRTY_CELLS = 4096;
+
+    // Board
+    private final int gridWidth;
+    private final int gridHeight;
+    private final String gameMode;
+    private final int ticksPerSecond;
+    @Getter(AccessLevel.NONE)
+    private SeededRandom random;
+    private long seed;
+
+    // Snake (the head is the first segment of the body)
+    @Getter(AccessLevel.NONE)
+    private final SnakeBody snakeBody = new SnakeBody();
+    @Getter(AccessLevel.NONE)
+    private final OccupancyGrid occupancy;
+    private int foodCell;
+    private int previousHeadCell;  // head before the last tick, for interpolated rendering
+    private int velocityX;
+    private int velocityY;
+    private boolean gameOver;
+    private boolean won;
+    private int moves;  // turns that actually changed direction
+    private long ticks;
+
+    // Cells whose contents changed since the renderer last caught up
+    @Getter(AccessLevel.NONE)
+    private int[] dirtyCells = new int[16];
+    private int dirtyCount;
+    private boolean fullRedraw;
+
+    // Timed mode
+    private int timeLimitSeconds;
+    private int foodToEat;
+    private int foodEaten;
+    private int tickCounter;
+
+    public SnakeEngine(int gridWidth, int gridHeight, String gameMode) {
+        this(gridWidth, gridHeight, gameMode, DEFAULT_TICKS_PER_SECOND, newSeed());
+    }
+
+    public SnakeEngine(int gridWidth, int gridHeight, String gameMode, int ticksPerSecond, long seed) {
+        this.gridWidth = gridWidth;
+        this.gridHeight = gridHeight;
+        this.gameMode = gameMode;
+        this.ticksPerSecond = ticksPerSecond;
+        this.occupancy = new OccupancyGrid(gridWidth * gridHeight);
+        reset(seed);
+    }
+
+    // A fresh seed for a session nobody asked to reproduce
+    public static long newSeed() {
+        return ThreadLocalRandom.current().nextLong();
+    }
+
+    /**
+     * Starts a new session from the given seed: a fresh head position, an empty body,
+     * no velocity and new food. Timed mode values are regenerated.
+     */
+    public void reset(long seed) {
+        this.seed = seed;
+        this.random = new SeededRandom(seed);
+        snakeBody.clear();
+        occupancy.clearAll();
+        velocityX = 0;
+        velocityY = 0;
+        gameOver = false;
+        won = false;
+        moves = 0;
+        ticks = 0;
+        tickCounter = 0;
+        markFullRedraw();
+
+        // Generate a random snake head position
+        int head = toCell(random.nextInt(gridWidth - 10 + 1), random.nextInt(gridHeight - 10 + 1));
+        snakeBody.addHead(head);
+        occupancy.set(head);
+        previousHeadCell = head;
+        placeFood();
+        generateTimeModeValues();
+    }
+
+    /**
+     * Returns an independent copy of the complete game state, including the random generator,
+     * so it can be restored later with {@link #restore(SnakeEngine)}.
+     */
+    public SnakeEngine snapshot() {
+        SnakeEngine copy = new SnakeEngine(gridWidth, gridHeight, gameMode, ticksPerSecond, seed);
+        copy.restore(this);
+        return copy;
+    }
+
+    /**
+     * Overwrites this engine's state with a snapshot of the same board size.
+     */
+    public void restore(SnakeEngine snapshot) {
+        seed = snapshot.seed;
+        random = snapshot.random.copy();
+        snakeBody.copyFrom(snapshot.snakeBody);
+        occupancy.copyFrom(snapshot.occupancy);
+        foodCell = snapshot.foodCell;
+        previousHeadCell = snapshot.previousHeadCell;
+        velocityX = snapshot.velocityX;
+        velocityY = snapshot.velocityY;
+        gameOver = snapshot.gameOver;
+        won = snapshot.won;
+        moves = snapshot.moves;
+        ticks = snapshot.ticks;
+        timeLimitSeconds = snapshot.timeLimitSeconds;
+        foodToEat = snapshot.foodToEat;
+        foodEaten = snapshot.foodEaten;
+        tickCounter = snapshot.tickCounter;
+        markFullRedraw();
+    }
+
+    /**
+     * Returns a compact copy of the game state: its size is proportional to the snake, not the board.
+     */
+    public Keyframe keyframe() {
+        int[] body = new int[snakeBody.size()];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = snakeBody.get(i);
+        }
+        return new Keyframe(seed, random.getState(), body, foodCell, previousHeadCell, velocityX, velocityY,
+                gameOver, won, moves, ticks, timeLimitSeconds, foodToEat, foodEaten, tickCounter);
+    }
+
+    /**
+     * Puts this engine back into the state of a keyframe taken on an engine with the same board,
+     * rebuilding the occupancy from the snake's cells.
+     */
+    public void restore(Keyframe keyframe) {
+        seed = keyframe.seed;
+        random = new SeededRandom(keyframe.randomState);
+        snakeBody.clear();
+        occupancy.clearAll();
+        for (int i = keyframe.body.length - 1; i >= 0; i--) {
+            snakeBody.addHead(keyframe.body[i]);
+            occupancy.set(keyframe.body[i]);
+        }
+        foodCell = keyframe.foodCell;
+        previousHeadCell = keyframe.previousHeadCell;
+        velocityX = keyframe.velocityX;
+        velocityY = keyframe.velocityY;
+        gameOver = keyframe.gameOver;
+        won = keyframe.won;
+        moves = keyframe.moves;
+        ticks = keyframe.ticks;
+        timeLimitSeconds = keyframe.timeLimitSeconds;
+        foodToEat = keyframe.foodToEat;
+        foodEaten = keyframe.foodEaten;
+        tickCounter = keyframe.tickCounter;
+        markFullRedraw();
+    }
+
+    /**
+     * Advances the simulation by one tick.
+     *
+     * @param turn the direction requested for this tick, or {@code null} to keep going straight.
+     *             A turn that would reverse the snake into itself is ignored.
+     */
+    public void step(Direction turn) {
+        if (gameOver) {
+            return;
+        }
+
+        previousHeadCell = snakeBody.head();
+        if (turn != null && isChangeOfDirection(turn)) {
+            velocityX = turn.getDx();
+            velocityY = turn.getDy();
+            moves++;
+        }
+
+        boolean grow = eatFood();
+        if (won) {
+            return;
+        }
+        move(grow);
+        ticks++;
+
+        if (isTimedMode()) {
+            if (timeLimitSeconds <= 0) {
+                gameOver = true;
+            }
+
+            if (foodEaten == foodToEat) {
+                generateTimeModeValues();
+            }
+
+            tickCounter++;
+            if (tickCounter >= ticksPerSecond) {
+                timeLimitSeconds--;
+                tickCounter = 0;
+            }
+        }
+    }
+
+    /**
+     * Returns true if the snake may turn to the given direction, i.e. it would not reverse
+     * straight back into its own body.
+     */
+    public boolean canTurn(Direction turn) {
+        return velocityX != -turn.getDx() || velocityY != -turn.getDy();
+    }
+
+    /**
+     * Returns true if the turn is allowed and differs from the current direction.
+     */
+    public boolean isChangeOfDirection(Direction turn) {
+        return canTurn(turn) && (velocityX != turn.getDx() || velocityY != turn.getDy());
+    }
+
+    public boolean isTimedMode() {
+        return "Timed".equals(gameMode);
+    }
+
+    // Score is the number of body segments behind the head
+    public int getScore() {
+        return snakeBody.size() - 1;
+    }
+
+    // Number of cells covered by the snake, head included
+    public int getLength() {
+        return snakeBody.size();
+    }
+
+    public int getHeadCell() {
+        return snakeBody.head();
+    }
+
+    /**
+     * Returns the cell of the segment at the given position, where 0 is the head.
+     */
+    public int getSegmentCell(int index) {
+        return snakeBody.get(index);
+    }
+
+    public int cellX(int cell) {
+        return cell % gridWidth;
+    }
+
+    public int cellY(int cell) {
+        return cell / gridWidth;
+    }
+
+    public int toCell(int x, int y) {
+        return y * gridWidth + x;
+    }
+
+    public boolean isOccupied(int cell) {
+        return occupancy.isOccupied(cell);
+    }
+
+    public int getDirtyCell(int index) {
+        return dirtyCells[index];
+    }
+
+    /**
+     * Called by the renderer once it has redrawn every dirty cell (or the whole board).
+     */
+    public void clearDirty() {
+        dirtyCount = 0;
+        fullRedraw = false;
+    }
+
+    private void markFullRedraw() {
+        fullRedraw = true;
+        dirtyCount = 0;
+    }
+
+    private void markDirty(int cell) {
+        if (fullRedraw) {
+            return;
+        }
+        if (dirtyCount == MAX_DIRTY_CELLS) {
+            fullRedraw = true;
+            dirtyCount = 0;
+            return;
+        }
+        if (dirtyCount == dirtyCells.length) {
+            dirtyCells = Arrays.copyOf(dirtyCells, dirtyCells.length * 2);
+        }
+        dirtyCells[dirtyCount++] = cell;
+    }
+
+    // Picks a random free cell. When the snake covers the whole board the game is won instead.
+    private void placeFood() {
+        int cell = gridWidth * gridHeight <= RANKED_FOOD_LIMIT ? rankFreeCell() : sampleFreeCell();
+        if (cell < 0) {
+            won = true;
+            gameOver = true;
+            return;
+        }
+        foodCell = cell;
+        markDirty(cell);
+    }
+
+    // A uniformly random rank among the free cells, resolved in cell order
+    private int rankFreeCell() {
+        int free = gridWidth * gridHeight - snakeBody.size();
+        return free == 0 ? -1 : occupancy.selectFree(random.nextInt(free));
+    }
+
+    // Large boards: the snake covers a tiny fraction of the cells, so a couple of random tries suffice
+    private int sampleFreeCell() {
+        long cellCount = (long) gridWidth * gridHeight;
+        if (snakeBody.size() >= cellCount) {
+            return -1;
+        }
+
+        int cell;
+        do {
+            cell = toCell(random.nextInt(gridWidth), random.nextInt(gridHeight));
+        } while (occupancy.isOccupied(cell));
+        return cell;
+    }
+
+    // Returns true when the head is on the food. The snake then keeps its tail on the next move.
+    private boolean eatFood() {
+        if (won || foodCell != snakeBody.head()) {
+            return false;
+        }
+        placeFood(); // Generate new food
+        foodEaten++;
+        return true;
+    }
+
+    private void generateTimeModeValues() {
+        foodToEat = random.nextInt(20) + 1; // 1 to 20 fruits
+
+        // Base time from grid size
+        int baseTime = (gridWidth * gridHeight) / (10 * 2);
+
+        // Scale time based on valToGet (e.g., +5 seconds per fruit)
+        timeLimitSeconds = baseTime + (foodToEat * 5);
+        foodEaten = 0;
+    }
+
+    private void move(boolean grow) {
+        if (velocityX == 0 && velocityY == 0) {
+            return; // Not moving yet
+        }
+
+        int headX = cellX(snakeBody.head()) + velocityX;
+        int headY = cellY(snakeBody.head()) + velocityY;
+
+        // Check if the snake head collides with the wall
+        if (headY < 0 || headY >= gridHeight || headX < 0 || headX >= gridWidth) {
+            gameOver = true;
+            return;
+        }
+
+        // Check if the snake head collides with its body. The tail moves out of the way unless the snake grows.
+        int newHead = toCell(headX, headY);
+        boolean intoTail = !grow && newHead == snakeBody.tail();
+        if (occupancy.isOccupied(newHead) && !intoTail) {
+            gameOver = true;
+            return;
+        }
+
+        if (!grow) {
+            int tail = snakeBody.removeTail();
+            occupancy.clear(tail);
+            markDirty(tail);
+        }
+        snakeBody.addHead(newHead);
+        occupancy.set(newHead);
+        markDirty(newHead);
+    }
+
+    /**
+     * Game state captured by {@link #keyframe()}; immutable once taken.
+     */
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    public static final class Keyframe {
+        private final long seed;
+        private final long randomState;
+        private final int[] body;  // head first
+        private final int foodCell;
+        private final int previousHeadCell;
+        private final int velocityX;
+        private final int velocityY;
+        private final boolean gameOver;
+        private final boolean won;
+        private final int moves;
+        private final long ticks;
+        private final int timeLimitSeconds;
+        private final int foodToEat;
+        private final int foodEaten;
+        private final int tickCounter;
+    }
+}
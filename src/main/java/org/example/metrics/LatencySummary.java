@@ -0,0 +1,23 @@
+package org.example.metrics;
+
+import lombok.Value;
+import org.example.utils.LatencyHistogram;
+
+/**
+ * One latency metric as shown over JMX, in microseconds.
+ */
+@Value
+public class LatencySummary {
+    long count;
+    long meanMicros;
+    long p50Micros;
+    long p90Micros;
+    long p99Micros;
+    long maxMicros;
+
+    static LatencySummary of(LatencyHistogram.Snapshot snapshot) {
+        return new LatencySummary(snapshot.getCount(), snapshot.getMean() / 1_000,
+                snapshot.quantile(0.5) / 1_000, snapshot.quantile(0.9) / 1_000,
+                snapshot.quantile(0.99) / 1_000, snapshot.getMax() / 1_000);
+    }
+}
@@ -0,0 +1,170 @@
+package org.example.metrics;
+
+import lombok.extern.log4j.Log4j2;
+import org.example.service.PersistenceWorker;
+import org.example.utils.Formatter;
+import org.example.utils.LatencyHistogram;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.swing.*;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms for the hot paths, cheap enough to leave on: recording is a few
+ * atomic increments and never takes a lock. Everything is exposed through a JMX MBean once
+ * {@link #start()} has run; with {@code -Dsnake.metricsLogSeconds=N} a summary of the last N seconds
+ * is also logged.
+ */
+@Log4j2
+public final class Metrics {
+    // Game loop thread
+    public static final LatencyHistogram TICK = new LatencyHistogram();          // one simulation step
+    public static final LatencyHistogram RENDER = new LatencyHistogram();        // one frame, active or repaint requests
+    public static final LatencyHistogram INPUT_LATENCY = new LatencyHistogram(); // key press to the tick that applies it
+    public static final LongAdder LOOP_OVERRUNS = new LongAdder();               // times the loop gave up catching up
+
+    // EDT
+    public static final LatencyHistogram PAINT = new LatencyHistogram();         // paintComponent of the game panel
+    public static final LatencyHistogram EDT_LAG = new LatencyHistogram();       // delay before a posted task runs
+    public static final LongAdder INPUTS_DROPPED = new LongAdder();              // key presses lost to a full input queue
+
+    // Persistence
+    public static final LatencyHistogram SAVE = new LatencyHistogram();          // one FileService write batch
+    public static final LatencyHistogram LOAD = new LatencyHistogram();          // analytics snapshot or history load
+    public static final LatencyHistogram PERSIST_LATENCY = new LatencyHistogram(); // game submitted to game saved
+
+    private static final String OBJECT_NAME = "org.example.snake:type=Metrics";
+    private static final long EDT_PROBE_MILLIS = 100;
+    private static final int LOG_SECONDS = Integer.getInteger("snake.metricsLogSeconds", 0);
+
+    private static ScheduledExecutorService scheduler;
+
+    private Metrics() {
+    }
+
+    /**
+     * Registers the MBean and starts the EDT lag probe and, if configured, the summary log.
+     * Safe to call more than once.
+     */
+    public static synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            log.error("Could not register the metrics MBean '{}'", OBJECT_NAME, e);
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "snake-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> {
+            long posted = System.nanoTime();
+            SwingUtilities.invokeLater(() -> EDT_LAG.recordSince(posted));
+        }, EDT_PROBE_MILLIS, EDT_PROBE_MILLIS, TimeUnit.MILLISECONDS);
+
+        if (LOG_SECONDS > 0) {
+            scheduler.scheduleAtFixedRate(new SummaryLog(), LOG_SECONDS, LOG_SECONDS, TimeUnit.SECONDS);
+        }
+        log.info("Metrics started: MBean '{}', summary log {}", OBJECT_NAME,
+                LOG_SECONDS > 0 ? "every " + LOG_SECONDS + " s" : "off");
+    }
+
+    // Logs what was recorded since the previous run
+    private static final class SummaryLog implements Runnable {
+        private final String[] names = {"tick", "render", "input", "paint", "edt lag", "save", "load", "persist"};
+        private final LatencyHistogram[] histograms = {TICK, RENDER, INPUT_LATENCY, PAINT, EDT_LAG, SAVE, LOAD, PERSIST_LATENCY};
+        private final LatencyHistogram.Snapshot[] previous = new LatencyHistogram.Snapshot[histograms.length];
+
+        private SummaryLog() {
+            for (int i = 0; i < histograms.length; i++) {
+                previous[i] = histograms[i].snapshot();
+            }
+        }
+
+        @Override
+        public void run() {
+            StringBuilder summary = new StringBuilder();
+            for (int i = 0; i < histograms.length; i++) {
+                LatencyHistogram.Snapshot current = histograms[i].snapshot();
+                LatencyHistogram.Snapshot interval = current.since(previous[i]);
+                previous[i] = current;
+                if (interval.getCount() > 0) {
+                    summary.append(names[i]).append(" p50 ").append(Formatter.formatNanos(interval.quantile(0.5)))
+                            .append(" p99 ").append(Formatter.formatNanos(interval.quantile(0.99)))
+                            .append(" max ").append(Formatter.formatNanos(interval.getMax()))
+                            .append(" (").append(interval.getCount()).append(") | ");
+                }
+            }
+            summary.append("save queue ").append(PersistenceWorker.getQueueDepth())
+                    .append(", inputs dropped ").append(INPUTS_DROPPED.sum())
+                    .append(", loop overruns ").append(LOOP_OVERRUNS.sum());
+            log.info("Metrics for the last {} s: {}", LOG_SECONDS, summary);
+        }
+    }
+
+    private static final class Bean implements MetricsMXBean {
+        @Override
+        public LatencySummary getTick() {
+            return LatencySummary.of(TICK.snapshot());
+        }
+
+        @Override
+        public LatencySummary getRender() {
+            return LatencySummary.of(RENDER.snapshot());
+        }
+
+        @Override
+        public LatencySummary getPaint() {
+            return LatencySummary.of(PAINT.snapshot());
+        }
+
+        @Override
+        public LatencySummary getEdtLag() {
+            return LatencySummary.of(EDT_LAG.snapshot());
+        }
+
+        @Override
+        public LatencySummary getInputLatency() {
+            return LatencySummary.of(INPUT_LATENCY.snapshot());
+        }
+
+        @Override
+        public LatencySummary getSave() {
+            return LatencySummary.of(SAVE.snapshot());
+        }
+
+        @Override
+        public LatencySummary getLoad() {
+            return LatencySummary.of(LOAD.snapshot());
+        }
+
+        @Override
+        public LatencySummary getPersistLatency() {
+            return LatencySummary.of(PERSIST_LATENCY.snapshot());
+        }
+
+        @Override
+        public long getInputsDropped() {
+            return INPUTS_DROPPED.sum();
+        }
+
+        @Override
+        public long getLoopOverruns() {
+            return LOOP_OVERRUNS.sum();
+        }
+
+        @Override
+        public int getPersistenceQueueDepth() {
+            return PersistenceWorker.getQueueDepth();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package org.example.metrics;
+
+/**
+ * The game's metrics over JMX, registered as {@code org.example.snake:type=Metrics}. Latencies
+ * cover everything since startup.
+ */
+public interface MetricsMXBean {
+    LatencySummary getTick();
+
+    LatencySummary getRender();
+
+    LatencySummary getPaint();
+
+    LatencySummary getEdtLag();
+
+    LatencySummary getInputLatency();
+
+    LatencySummary getSave();
+
+    LatencySummary getLoad();
+
+    LatencySummary getPersistLatency();
+
+    long getInputsDropped();
+
+    long getLoopOverruns();
+
+    int getPersistenceQueueDepth();
+}
@@ -0,0 +1,25 @@
+package org.example.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Everything needed to play a session back tick for tick: the seed and board it started from and
+ * the turns the player made. {@code inputs} holds one entry per applied turn, encoded as a varint
+ * tick gap since the previous turn followed by the direction ordinal.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class Replay {
+    private long seed;
+    private int gridWidth;
+    private int gridHeight;
+    private String gameMode;
+    private int ticksPerSecond;
+    private long totalTicks;
+    private byte[] inputs;
+}
@@ -19,6 +19,8 @@ public class SessionData {
     private int moves;
     private long timeSpentMillis;
     @Builder.Default
+    private String gameMode = "Normal";
+    @Builder.Default
     private LocalDateTime date = LocalDateTime.now();
 
     // Convert the object to a CSV row
@@ -30,7 +32,8 @@ public class SessionData {
                 String.valueOf(foodEaten),
                 String.valueOf(timeSpentMillis),
                 String.valueOf(moves),
-                date.toString()
+                date.toString(),
+                gameMode
         };
     }
 }
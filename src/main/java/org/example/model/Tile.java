@@ -1,13 +0,0 @@
-package org.example.model;
-
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
-
-@Data
-@AllArgsConstructor
-@NoArgsConstructor
-public class Tile {
-    private int x;
-    private int y;
-}
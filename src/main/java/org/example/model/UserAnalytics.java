@@ -1,15 +1,17 @@
 package org.example.model;
 
-import lombok.AllArgsConstructor;
 import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.Value;
 
-@Data
-@AllArgsConstructor
-@NoArgsConstructor
+/**
+ * Immutable summary of all game sessions. A new instance is published whenever the history
+ * changes, so a reference to one always describes a single consistent state.
+ */
+@Value
 @Builder
 public class UserAnalytics {
+    public static final UserAnalytics EMPTY = builder().build();
+
     // Totals
     private long totalGames;
     private long totalMoves;
@@ -33,4 +35,15 @@ public class UserAnalytics {
     private long shortestFoodEaten;
     private long shortestMoves;
     private long shortestTimeSpent;
+
+    // Distributions
+    private long medianScore;
+    private long p90Score;
+    private long p99Score;
+    private long medianLength;
+    private long p90Length;
+    private long p99Length;
+    private long medianTimeSpent;
+    private long p90TimeSpent;
+    private long p99TimeSpent;
 }
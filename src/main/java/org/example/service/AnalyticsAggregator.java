@@ -0,0 +1,155 @@
+package org.example.service;
+
+import lombok.Getter;
+import org.example.model.SessionData;
+import org.example.model.UserAnalytics;
+import org.example.utils.QuantileSketch;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Running totals, extremes and distributions over game sessions. Adding a session updates each
+ * metric in constant time, so the analytics never need a rescan of the history. Aggregators are
+ * mergeable, which lets several partial histories (or parallel scans) be combined.
+ */
+@Getter
+public class AnalyticsAggregator {
+    private final Metric score = new Metric(true);
+    private final Metric length = new Metric(true);
+    private final Metric foodEaten = new Metric(false);
+    private final Metric moves = new Metric(false);
+    private final Metric timeSpent = new Metric(true);
+
+    public void add(SessionData data) {
+        score.record(data.getScore());
+        length.record(data.getLength());
+        foodEaten.record(data.getFoodEaten());
+        moves.record(data.getMoves());
+        timeSpent.record(data.getTimeSpentMillis());
+    }
+
+    public void merge(AnalyticsAggregator other) {
+        score.merge(other.score);
+        length.merge(other.length);
+        foodEaten.merge(other.foodEaten);
+        moves.merge(other.moves);
+        timeSpent.merge(other.timeSpent);
+    }
+
+    public long getCount() {
+        return length.count;
+    }
+
+    /**
+     * Writes the state of every metric, so the aggregator can be restored without the history.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        for (Metric metric : metrics()) {
+            metric.writeTo(out);
+        }
+    }
+
+    public static AnalyticsAggregator readFrom(DataInput in) throws IOException {
+        AnalyticsAggregator aggregator = new AnalyticsAggregator();
+        for (Metric metric : aggregator.metrics()) {
+            metric.readFrom(in);
+        }
+        return aggregator;
+    }
+
+    private Metric[] metrics() {
+        return new Metric[]{score, length, foodEaten, moves, timeSpent};
+    }
+
+    /**
+     * Builds the analytics shown on the stats screen from the current totals.
+     */
+    public UserAnalytics toAnalytics() {
+        long games = getCount();
+        if (games == 0) {
+            return UserAnalytics.EMPTY;
+        }
+
+        return UserAnalytics.builder()
+                .totalGames(games)
+                .totalMoves(moves.sum)
+                .totalFoodEaten(foodEaten.sum)
+                .totalTimeSpent(timeSpent.sum)
+                .averageLength(length.sum / games)
+                .averageFoodEaten(foodEaten.sum / games)
+                .averageMoves(moves.sum / games)
+                .averageTimeSpent(timeSpent.sum / games)
+                .longestLength(length.max)
+                .longestFoodEaten(foodEaten.max)
+                .longestMoves(moves.max)
+                .longestTimeSpent(timeSpent.max)
+                .shortestLength(length.min)
+                .shortestFoodEaten(foodEaten.min)
+                .shortestMoves(moves.min)
+                .shortestTimeSpent(timeSpent.min)
+                .medianScore(score.quantile(0.5))
+                .p90Score(score.quantile(0.9))
+                .p99Score(score.quantile(0.99))
+                .medianLength(length.quantile(0.5))
+                .p90Length(length.quantile(0.9))
+                .p99Length(length.quantile(0.99))
+                .medianTimeSpent(timeSpent.quantile(0.5))
+                .p90TimeSpent(timeSpent.quantile(0.9))
+                .p99TimeSpent(timeSpent.quantile(0.99))
+                .build();
+    }
+
+    /**
+     * Count, sum, extremes and (optionally) the distribution of one session field.
+     */
+    @Getter
+    public static class Metric {
+        private long count;
+        private long sum;
+        private long min = Long.MAX_VALUE;
+        private long max = Long.MIN_VALUE;
+        private final QuantileSketch sketch; // null when the distribution is not tracked
+
+        private Metric(boolean trackDistribution) {
+            this.sketch = trackDistribution ? new QuantileSketch() : null;
+        }
+
+        public void record(long value) {
+            count++;
+            sum += value;
+            if (value < min) min = value;
+            if (value > max) max = value;
+            if (sketch != null) sketch.record(Math.max(0, value));
+        }
+
+        public long quantile(double q) {
+            return sketch == null ? 0 : sketch.quantile(q);
+        }
+
+        private void merge(Metric other) {
+            count += other.count;
+            sum += other.sum;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            if (sketch != null) sketch.merge(other.sketch);
+        }
+
+        private void writeTo(DataOutput out) throws IOException {
+            out.writeLong(count);
+            out.writeLong(sum);
+            out.writeLong(min);
+            out.writeLong(max);
+            if (sketch != null) sketch.writeTo(out);
+        }
+
+        private void readFrom(DataInput in) throws IOException {
+            count = in.readLong();
+            sum = in.readLong();
+            min = in.readLong();
+            max = in.readLong();
+            if (sketch != null) sketch.merge(QuantileSketch.readFrom(in));
+        }
+    }
+}
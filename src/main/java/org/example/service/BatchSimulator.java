@@ -0,0 +1,292 @@
+package org.example.service;
+
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.log4j.Log4j2;
+import org.example.engine.Autopilot;
+import org.example.engine.Direction;
+import org.example.engine.SeededRandom;
+import org.example.engine.SnakeController;
+import org.example.engine.SnakeEngine;
+import org.example.model.SessionData;
+import org.example.model.UserAnalytics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Plays many complete games headless, spread over a fork/join pool. The range of game numbers is
+ * split into small tasks so that long and short games balance out across the workers; each task
+ * aggregates its own games and the partial aggregators are merged on the way back up, so the
+ * workers share nothing but an optional output store.
+ * <p>
+ * Game {@code i} always gets the same engine and controller seeds (derived from the run seed), so
+ * a run is reproducible whatever the number of threads.
+ */
+@Log4j2
+public class BatchSimulator {
+    private static final int GAMES_PER_TASK = 8;
+    private static final long PROGRESS_LOG_SECONDS = 10;
+
+    /**
+     * Who plays the simulated games.
+     */
+    public enum Controller {
+        AUTOPILOT {
+            @Override
+            SnakeController create(long seed) {
+                return new Autopilot(seed);
+            }
+        },
+        // Turns a random way on about one tick in four; a baseline for balance changes
+        RANDOM {
+            @Override
+            SnakeController create(long seed) {
+                SeededRandom random = new SeededRandom(seed);
+                Direction[] directions = Direction.values();
+                return engine -> random.nextInt(4) == 0 ? directions[random.nextInt(directions.length)] : null;
+            }
+        };
+
+        abstract SnakeController create(long seed);
+    }
+
+    @Value
+    @Builder
+    public static class Settings {
+        int games;
+        @Builder.Default
+        int gridWidth = 24;
+        @Builder.Default
+        int gridHeight = 24;
+        @Builder.Default
+        String gameMode = "Normal";
+        @Builder.Default
+        Controller controller = Controller.AUTOPILOT;
+        @Builder.Default
+        long seed = 1;
+        @Builder.Default
+        int threads = Runtime.getRuntime().availableProcessors();
+        @Builder.Default
+        long maxTicksPerCell = 200; // a game still running after this many ticks per cell is cut off
+    }
+
+    @Value
+    public static class Result {
+        long games;
+        long wins;
+        long unfinished;  // cut off at the tick limit
+        long ticks;
+        long elapsedNanos;
+        UserAnalytics analytics;
+
+        public double getGamesPerSecond() {
+            return games / (elapsedNanos / 1e9);
+        }
+
+        public double getTicksPerSecond() {
+            return ticks / (elapsedNanos / 1e9);
+        }
+    }
+
+    /**
+     * Runs the games and returns their combined analytics.
+     */
+    public static Result run(Settings settings) throws IOException {
+        return run(settings, (SessionColumnStore) null);
+    }
+
+    /**
+     * Runs the games and also writes each one as a session to a session store in the given directory,
+     * in completion order; the session id is the game number, starting at 0.
+     * <p>
+     * Those ids overlap the ones real sessions get (which also start at 0, and again after every
+     * reset), and a store keeps whatever ids it is given, including through {@code --import-csv}. So
+     * the output should go to a directory of its own: mixed with real sessions in one store, the ids
+     * clash.
+     */
+    public static Result run(Settings settings, Path outputDirectory) throws IOException {
+        try (SessionColumnStore store = new SessionColumnStore(outputDirectory)) {
+            Result result = run(settings, store);
+            store.sync();
+            return result;
+        }
+    }
+
+    private static Result run(Settings settings, SessionColumnStore output) throws IOException {
+        if (settings.getGames() < 1) {
+            throw new IllegalArgumentException("At least one game is needed, got " + settings.getGames());
+        }
+        if (settings.getGridWidth() < 10 || settings.getGridHeight() < 10) {
+            throw new IllegalArgumentException("The board must be at least 10 x 10, got "
+                    + settings.getGridWidth() + " x " + settings.getGridHeight());
+        }
+
+        log.info("Simulating {} {} games on {} x {} with the {} controller on {} threads, seed {}",
+                settings.getGames(), settings.getGameMode(), settings.getGridWidth(), settings.getGridHeight(),
+                settings.getController(), settings.getThreads(), settings.getSeed());
+        Run run = new Run(settings, output);
+        ForkJoinPool pool = new ForkJoinPool(settings.getThreads());
+        long start = System.nanoTime();
+        try {
+            ForkJoinTask<Totals> task = pool.submit(new Games(run, 0, settings.getGames()));
+            Totals totals = awaitWithProgress(task, run, start);
+            long elapsed = System.nanoTime() - start;
+
+            Result result = new Result(settings.getGames(), totals.wins, totals.unfinished, totals.ticks, elapsed,
+                    totals.aggregator.toAnalytics());
+            log.info("Simulated {} games in {} ms: {} games/s, {} ticks/s, {} won, {} cut off",
+                    result.getGames(), TimeUnit.NANOSECONDS.toMillis(elapsed), Math.round(result.getGamesPerSecond()),
+                    Math.round(result.getTicksPerSecond()), result.getWins(), result.getUnfinished());
+            return result;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static Totals awaitWithProgress(ForkJoinTask<Totals> task, Run run, long start) throws IOException {
+        while (true) {
+            try {
+                return task.get(PROGRESS_LOG_SECONDS, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                long done = run.completed.sum();
+                double seconds = (System.nanoTime() - start) / 1e9;
+                log.info("Simulated {}/{} games ({} games/s)", done, run.settings.getGames(), Math.round(done / seconds));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while simulating", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof UncheckedIOException io) {
+                    throw io.getCause();
+                }
+                throw new IllegalStateException("Simulation failed", e.getCause());
+            }
+        }
+    }
+
+    // Engine and controller seeds for game i: two independent draws from a generator seeded by (run seed, i)
+    private static long engineSeed(long runSeed, int game) {
+        return new SeededRandom(runSeed * 0x9E3779B97F4A7C15L + game).nextLong();
+    }
+
+    private static long controllerSeed(long runSeed, int game) {
+        return ~engineSeed(runSeed, game);
+    }
+
+    // State shared by every task of one run
+    private static class Run {
+        private final Settings settings;
+        private final SessionColumnStore output;
+        private final long maxTicks;
+        private final LongAdder completed = new LongAdder();
+        // One engine per worker thread, reset for each game
+        private final ThreadLocal<SnakeEngine> engines;
+
+        private Run(Settings settings, SessionColumnStore output) {
+            this.settings = settings;
+            this.output = output;
+            this.maxTicks = settings.getMaxTicksPerCell() * settings.getGridWidth() * settings.getGridHeight();
+            this.engines = ThreadLocal.withInitial(() -> new SnakeEngine(settings.getGridWidth(),
+                    settings.getGridHeight(), settings.getGameMode(), SnakeEngine.DEFAULT_TICKS_PER_SECOND, 0));
+        }
+    }
+
+    // What a task reports back: its games' aggregate plus a few counters
+    private static class Totals {
+        private final AnalyticsAggregator aggregator = new AnalyticsAggregator();
+        private long wins;
+        private long unfinished;
+        private long ticks;
+
+        private Totals merge(Totals other) {
+            aggregator.merge(other.aggregator);
+            wins += other.wins;
+            unfinished += other.unfinished;
+            ticks += other.ticks;
+            return this;
+        }
+    }
+
+    // Plays games [from, to), splitting the range in half until it is small
+    private static class Games extends RecursiveTask<Totals> {
+        private final Run run;
+        private final int from;
+        private final int to;
+
+        private Games(Run run, int from, int to) {
+            this.run = run;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Totals compute() {
+            if (to - from > GAMES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                Games left = new Games(run, from, middle);
+                left.fork();
+                Totals right = new Games(run, middle, to).compute();
+                return left.join().merge(right);
+            }
+
+            Totals totals = new Totals();
+            List<SessionData> sessions = run.output != null ? new ArrayList<>(to - from) : null;
+            SnakeEngine engine = run.engines.get();
+            for (int game = from; game < to; game++) {
+                SessionData session = play(engine, game);
+                totals.aggregator.add(session);
+                totals.ticks += engine.getTicks();
+                if (engine.isWon()) {
+                    totals.wins++;
+                } else if (!engine.isGameOver()) {
+                    totals.unfinished++;
+                }
+                if (sessions != null) {
+                    sessions.add(session);
+                }
+                run.completed.increment();
+            }
+
+            if (sessions != null) {
+                try {
+                    synchronized (run.output) {
+                        run.output.appendAll(sessions);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return totals;
+        }
+
+        private SessionData play(SnakeEngine engine, int game) {
+            long seed = run.settings.getSeed();
+            engine.reset(engineSeed(seed, game));
+            SnakeController controller = run.settings.getController().create(controllerSeed(seed, game));
+            while (!engine.isGameOver() && engine.getTicks() < run.maxTicks) {
+                engine.step(controller.nextTurn(engine));
+            }
+
+            // Recorded the way the game screen records a game, with the time it would have taken to play
+            return SessionData.builder()
+                    .id(game)
+                    .score(engine.getScore())
+                    .length(engine.getScore())
+                    .foodEaten(engine.getScore())
+                    .timeSpentMillis(engine.getTicks() * 1000 / engine.getTicksPerSecond())
+                    .moves(engine.getMoves())
+                    .gameMode(engine.getGameMode())
+                    .build();
+        }
+    }
+}
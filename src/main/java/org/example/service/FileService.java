@@ -1,267 +1,356 @@
 package org.example.service;
 
-import com.opencsv.CSVReader;
-import com.opencsv.CSVWriter;
-import com.opencsv.exceptions.CsvException;
 import lombok.extern.log4j.Log4j2;
+import org.example.metrics.Metrics;
 import org.example.model.SessionData;
 import org.example.model.UserAnalytics;
 
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeParseException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.CRC32C;
 
 @Log4j2
 public class FileService {
-    private static final String FILE_PATH = "data/snakeData.csv";
-    private static final String[] HEADERS = {"Id", "Score", "Snake-Length", "Food-Eaten", "Time-Spent", "Moves"};
+    // Root of everything the game saves; -Dsnake.dataDir points it elsewhere (benchmarks use a scratch directory)
+    public static final Path DATA_DIR = Paths.get(System.getProperty("snake.dataDir", "data"));
 
-    private static final List<SessionData> dataList = new ArrayList<>();
-    public static UserAnalytics userAnalytics = new UserAnalytics();
+    private static final Path FILE_PATH = DATA_DIR.resolve("snakeData.csv"); // single-file history of older versions
+    private static final Path LOG_DIR = DATA_DIR.resolve("log");
+    static final String[] HEADERS = {"Id", "Score", "Snake-Length", "Food-Eaten", "Time-Spent", "Moves", "Date", "Game-Mode"};
+
+    private static final int LOAD_BATCH_SIZE = 8192; // sessions per repository publish while loading
+
+    private static final Path ANALYTICS_FILE = DATA_DIR.resolve("analytics.bin");
+    private static final int ANALYTICS_MAGIC = 0x534E4B41; // "SNKA"
+    private static final int ANALYTICS_VERSION = 1;
+
+    // Replaced by a fully loaded repository once the history is read; see getHistory()
+    private static volatile SessionRepository repository = new SessionRepository();
+    private static volatile boolean historyLoaded;
+    private static volatile boolean analyticsRestored;
+    private static final Object historyLoadLock = new Object(); // one history load at a time
+    private static List<SessionData> writtenDuringLoad;         // guarded by FileService.class; set while a load reads the log
+    private static final SessionLog sessionLog = new SessionLog(LOG_DIR, FILE_PATH);
+    private static final Leaderboard leaderboard = new Leaderboard(DATA_DIR.resolve("leaderboard.idx"));
 
     /**
-     * Writes session data to a CSV file asynchronously.
+     * Writes session data to the session log.
      * Does not throw exceptions; all errors are logged.
+     * <p>
+     * The log stays open between calls and the next ID is kept in memory (recovered once from the
+     * end of the log), so appending a session costs the same no matter how long the history is.
+     * Games normally hand their sessions to {@link PersistenceWorker} instead, which batches them
+     * through {@link #writeBatch}.
      */
     public static void writeData(SessionData data) {
-        File file = new File(FILE_PATH);
-        log.info("Starting to write session data on thread: {}", Thread.currentThread().getName());
+        writeBatch(List.of(data), false);
+    }
 
-        try {
-            // Simulate delay
-            Thread.sleep(2000);
+    /**
+     * Appends several sessions as one group commit: every row is written, then the file is flushed
+     * once and, if requested, forced to disk once. Returns false if the write failed.
+     * Does not throw exceptions; all errors are logged.
+     */
+    public static synchronized boolean writeBatch(List<SessionData> batch, boolean sync) {
+        if (batch.isEmpty()) {
+            return true;
+        }
 
-            boolean fileExists = file.exists();
-            int nextId = 0;
+        long started = System.nanoTime();
+        try {
+            sessionLog.append(batch, sync);
+            log.info("Wrote {} session(s) to '{}' on thread {}{}", batch.size(), LOG_DIR,
+                    Thread.currentThread().getName(), sync ? " (synced)" : "");
 
-            if (fileExists) {
-                // Determine the next ID based on existing file content
-                try (CSVReader reader = new CSVReader(new FileReader(file))) {
-                    List<String[]> rows = reader.readAll();
-                    if (rows.size() > 1) {
-                        String[] lastRow = rows.getLast();
-                        nextId = Integer.parseInt(lastRow[0]) + 1;
-                    }
-                } catch (Exception e) {
-                    log.error("Error reading CSV file", e);
-                }
+            repository.addAll(batch);
+            if (writtenDuringLoad != null) {
+                writtenDuringLoad.addAll(batch); // past the end of the log the load is reading
             }
+            log.debug("User analytics updated: {}", repository.getAnalytics());
+            saveAnalytics(sync);
+            addToLeaderboard(batch, sync);
+            Metrics.SAVE.recordSince(started);
+            return true;
 
-            // Write the session data to the CSV file
-            try (CSVWriter writer = new CSVWriter(new FileWriter(file, true))) {
-                if (!fileExists) {
-                    writer.writeNext(HEADERS); // Write headers for a new file
-                    log.info("Header written to new CSV file");
-                }
-
-                data.setId(nextId);
-                writer.writeNext(data.toCsvRow());
-                log.info("Session data written successfully: {}", data);
+        } catch (Exception e) {
+            log.error("Error writing to session log '{}'", LOG_DIR, e);
+            return false;
+        }
+    }
 
-                dataList.add(data);
-                calculateUserAnalytics();
+    /**
+     * Forces everything written so far to disk.
+     */
+    public static synchronized void sync() {
+        try {
+            sessionLog.sync();
+        } catch (IOException e) {
+            log.error("Error syncing session log '{}'", LOG_DIR, e);
+        }
+    }
 
-            } catch (Exception e) {
-                log.error("Error writing to CSV file '{}'", FILE_PATH, e);
+    /**
+     * Restores the analytics from the snapshot written after the last update, so the stats screen is
+     * correct from the first frame without reading the session history. The snapshot is only used if
+     * it was taken at the current end of the session log; otherwise {@link #getUserData} rebuilds
+     * the analytics from the history. Returns whether the snapshot was used.
+     * Errors are logged; no exceptions are thrown.
+     */
+    public static synchronized boolean loadAnalyticsSnapshot() {
+        long started = System.nanoTime();
+        try {
+            byte[] bytes = Files.readAllBytes(ANALYTICS_FILE);
+            if (bytes.length < Integer.BYTES) {
+                throw new IOException("File is truncated");
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(bytes, 0, bytes.length - Integer.BYTES);
+            if ((int) crc.getValue() != ByteBuffer.wrap(bytes, bytes.length - Integer.BYTES, Integer.BYTES).getInt()) {
+                throw new IOException("Checksum mismatch");
             }
 
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            log.error("Thread was interrupted while writing session data", e);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - Integer.BYTES));
+            if (in.readInt() != ANALYTICS_MAGIC || in.readInt() != ANALYTICS_VERSION) {
+                throw new IOException("Unknown format");
+            }
+            long nextId = in.readLong();
+            if (nextId != sessionLog.getNextId()) {
+                log.info("Analytics snapshot '{}' is out of date; the history will be reloaded", ANALYTICS_FILE);
+                return false;
+            }
+            repository.restoreAnalytics(in);
+            analyticsRestored = true;
+            Metrics.LOAD.recordSince(started);
+            log.info("Restored analytics from '{}' in {} us: {}", ANALYTICS_FILE,
+                    (System.nanoTime() - started) / 1_000, repository.getAnalytics());
+            return true;
+
+        } catch (NoSuchFileException e) {
+            log.info("No analytics snapshot at '{}'; the history will be loaded", ANALYTICS_FILE);
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable analytics snapshot '{}': {}", ANALYTICS_FILE, e.getMessage());
         }
-
-        log.info("Finished writing session data on thread: {}", Thread.currentThread().getName());
+        return false;
     }
 
     /**
-     * Reads session data from the CSV file and populates the dataList.
+     * Loads the leaderboard from its index file and reads the full session history only if
+     * something needs it: the analytics were not restored from a snapshot, or the leaderboard is
+     * missing sessions. Meant to run in the background at startup.
      * Errors are logged; no exceptions are thrown.
      */
     public static void getUserData() {
-        File file = new File(FILE_PATH);
-
         try {
-            // Simulate delay (optional)
-            Thread.sleep(1000);
+            // The leaderboard comes from its own index file, without waiting for the history
+            leaderboard.load();
+        } catch (IOException e) {
+            log.error("Error loading the leaderboard index", e);
+        }
 
-            // Check if file exists
-            boolean fileExists = file.exists();
-            if (!fileExists) {
-                log.warn("CSV file '{}' does not exist.", FILE_PATH);
-                return; // No data to read
+        // Nothing else reads the sessions themselves, so the history is only read when the analytics
+        // or the leaderboard need it. It is read now rather than on demand because until then the
+        // statistics screens would show missing or stale numbers.
+        synchronized (FileService.class) {
+            if (historyLoaded || (analyticsRestored && leaderboard.size() == repository.getAnalytics().getTotalGames())) {
+                return;
             }
+        }
+        getHistory();
+    }
 
-            // Open CSV file and read all rows
-            try (CSVReader reader = new CSVReader(new FileReader(file))) {
-                List<String[]> rows = reader.readAll();
-
-                // Skip header row (index 0) and process data rows
-                for (int i = 1; i < rows.size(); i++) {
-                    String[] row = rows.get(i);
-                    try {
-                        // Parse each column and remove quotes
-                        long id = Long.parseLong(row[0].replace("\"", "").trim());
-                        long score = Long.parseLong(row[1].replace("\"", "").trim());
-                        int length = Integer.parseInt(row[2].replace("\"", "").trim());
-                        int foodEaten = Integer.parseInt(row[3].replace("\"", "").trim());
-                        long timeSpentMillis = Integer.parseInt(row[4].replace("\"", "").trim());
-                        int moves = Integer.parseInt(row[5].replace("\"", "").trim());
-                        LocalDateTime date = LocalDateTime.parse(row[6].replace("\"", "").trim());
-
-                        // Create SessionData object and add to list
-                        SessionData sessionData = SessionData.builder()
-                                .id(id)
-                                .score(score)
-                                .length(length)
-                                .foodEaten(foodEaten)
-                                .moves(moves)
-                                .timeSpentMillis(timeSpentMillis)
-                                .date(date)
-                                .build();
-
-                        dataList.add(sessionData);
-                        calculateUserAnalytics();
+    /**
+     * Returns every session since the last reset, reading the session history from the session
+     * log the first time it is needed. Errors are logged; no exceptions are thrown.
+     * <p>
+     * Rows are streamed through {@link SessionCsvParser} one at a time instead of loading the whole
+     * file first, and handed to a new repository in batches, so loading takes time proportional to
+     * the history with memory bounded by the parser's buffer plus the sessions. The new repository
+     * replaces the current one only once it is complete, so readers keep seeing the restored
+     * analytics until then.
+     * <p>
+     * The log is read without holding the FileService lock, so games keep being saved meanwhile.
+     * The load reads the log up to where it ended when the load started; sessions written after
+     * that are collected by {@link #writeBatch} and added before the new repository is published
+     * under the lock. A reset during the load makes the loaded history obsolete, and it is dropped.
+     * <p>
+     * If the log cannot be read to the end, nothing is published: the current analytics stay, no
+     * snapshot is written, the leaderboard is left alone, and the next call reads the log again.
+     */
+    public static SessionRepository.Snapshot getHistory() {
+        synchronized (historyLoadLock) {
+            SessionLog.End end;
+            synchronized (FileService.class) {
+                if (historyLoaded) {
+                    return repository.snapshot();
+                }
+                try {
+                    end = sessionLog.markEnd();
+                } catch (IOException e) {
+                    log.error("Error opening session log '{}'", LOG_DIR, e);
+                    return repository.snapshot();
+                }
+                writtenDuringLoad = new ArrayList<>();
+            }
 
-                    } catch (NumberFormatException | ArrayIndexOutOfBoundsException | DateTimeParseException ex) {
-                        // Log individual row parsing errors without stopping the process
-                        log.error("Error parsing row {}: {}", i, row, ex);
-                    }
+            SessionRepository loaded = readHistory(end);
+            synchronized (FileService.class) {
+                List<SessionData> written = writtenDuringLoad;
+                writtenDuringLoad = null;
+                if (loaded == null || historyLoaded) {
+                    return repository.snapshot(); // failed, or reset while loading
+                }
+                loaded.addAll(written);
+                repository = loaded;
+                historyLoaded = true;
+                saveAnalytics(true);
+
+                // Under the lock so no batch reaches the leaderboard before it is in this history
+                try {
+                    leaderboard.catchUp(loaded.snapshot());
+                } catch (IOException e) {
+                    log.error("Error updating the leaderboard index", e);
                 }
-            } catch (IOException | CsvException e) {
-                log.error("Error reading CSV file '{}'", FILE_PATH, e);
+                return loaded.snapshot();
             }
+        }
+    }
 
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            log.error("Thread was interrupted while reading session data", e);
+    // Reads the session log up to the given end into a new repository; null if it could not be read to the end
+    private static SessionRepository readHistory(SessionLog.End end) {
+        long started = System.nanoTime();
+        SessionRepository loaded = new SessionRepository();
+        List<SessionData> batch = new ArrayList<>(LOAD_BATCH_SIZE);
+        try {
+            sessionLog.load(end, data -> {
+                batch.add(data);
+                if (batch.size() == LOAD_BATCH_SIZE) {
+                    loaded.addAll(batch);
+                    batch.clear();
+                }
+            }, () -> {
+                // Everything before a reset marker is discarded
+                batch.clear();
+                loaded.clear();
+            });
+        } catch (IOException e) {
+            log.error("Error reading session log '{}'; keeping the current analytics", LOG_DIR, e);
+            return null;
         } catch (Exception e) {
             // Catch-all for unexpected errors
-            log.error("Unexpected error while reading session data", e);
+            log.error("Unexpected error while reading session data; keeping the current analytics", e);
+            return null;
         }
+
+        loaded.addAll(batch);
+        Metrics.LOAD.recordSince(started);
+        log.info("Loaded {} sessions from '{}' in {} ms: {}", loaded.snapshot().size(), LOG_DIR,
+                (System.nanoTime() - started) / 1_000_000, loaded.getAnalytics());
+        return loaded;
     }
 
     /**
-     * Clears all session data in the CSV file except for the header (first row).
-     * If the file doesn't exist or is empty, no action is taken.
+     * Clears all session data. The session log records a reset marker instead of rewriting the
+     * file, so this takes the same time no matter how long the history is; the old rows are
+     * compacted away on the next load.
      * Errors are logged; no exceptions are thrown.
      */
-    public static void clearDataFile() {
-        File file = new File(FILE_PATH);
-
-        if (!file.exists()) {
-            log.warn("File '{}' does not exist. Nothing to clear.", FILE_PATH);
-            return;
-        }
-
+    public static synchronized void clearDataFile() {
         try {
-            // Read all lines
-            List<String> lines = Files.readAllLines(file.toPath());
-
-            // Keep only the first line (header)
-            if (!lines.isEmpty()) {
-                String header = lines.getFirst();
-
-                // Overwrite the file with only the header
-                try (FileWriter writer = new FileWriter(file, false)) { // false = overwrite
-                    writer.write(header + System.lineSeparator());
-                }
-
-                dataList.clear();
-                userAnalytics = new UserAnalytics();
-                log.info("Cleared all session data except the header in '{}'", FILE_PATH);
-            } else {
-                log.warn("File '{}' was empty — nothing to clear.", FILE_PATH);
-            }
-
+            sessionLog.reset();
+            repository.clear();
+            historyLoaded = true; // nothing before the reset is part of the history any more
+            saveAnalytics(true);
+            leaderboard.clear();
+            ReplayService.deleteAll();
+            log.info("Cleared all session data in '{}'", LOG_DIR);
         } catch (IOException e) {
-            log.error("Error while clearing data file '{}'", FILE_PATH, e);
+            log.error("Error while clearing session log '{}'", LOG_DIR, e);
         }
     }
 
     /**
-     * Calculates user analytics based on all saved game sessions in dataList.
-     * Updates the global userAnalytics object with totals, averages, longest, and shortest metrics.
-     * Log key steps and any potential issues.
+     * Returns the analytics for every session loaded or written so far. Never blocks and never
+     * returns null.
      */
-    private static void calculateUserAnalytics() {
-        if (dataList.isEmpty()) {
-            log.warn("No session data available to calculate analytics.");
-            return;
-        }
-
-        // Totals
-        long totalMoves = 0;
-        long totalFoodEaten = 0;
-        long totalTimeSpent = 0;
-        long totalLength = 0;
-
-        // Longest values
-        long longestLength = 0;
-        long longestFoodEaten = 0;
-        long longestMoves = 0;
-        long longestTimeSpent = 0;
-
-        // Shortest values (initialize with first session)
-        long shortestLength = dataList.getFirst().getLength();
-        long shortestFoodEaten = dataList.getFirst().getFoodEaten();
-        long shortestMoves = dataList.getFirst().getMoves();
-        long shortestTimeSpent = dataList.getFirst().getTimeSpentMillis();
+    public static UserAnalytics getUserAnalytics() {
+        return repository.getAnalytics();
+    }
 
-        // Iterate over all sessions to calculate totals, longest, and shortest metrics
-        for (SessionData data : dataList) {
-            // Update totals
-            totalMoves += data.getMoves();
-            totalFoodEaten += data.getFoodEaten();
-            totalTimeSpent += data.getTimeSpentMillis();
-            totalLength += data.getLength();
+    /**
+     * Returns the current repository. Its analytics and rollups always cover the whole history,
+     * but until {@link #getHistory} has run it only holds the sessions written since startup.
+     */
+    public static SessionRepository getRepository() {
+        return repository;
+    }
 
-            // Update longest values
-            if (data.getLength() > longestLength) longestLength = data.getLength();
-            if (data.getFoodEaten() > longestFoodEaten) longestFoodEaten = data.getFoodEaten();
-            if (data.getMoves() > longestMoves) longestMoves = data.getMoves();
-            if (data.getTimeSpentMillis() > longestTimeSpent) longestTimeSpent = data.getTimeSpentMillis();
+    public static Leaderboard getLeaderboard() {
+        return leaderboard;
+    }
 
-            // Update shortest values
-            if (data.getLength() < shortestLength) shortestLength = data.getLength();
-            if (data.getFoodEaten() < shortestFoodEaten) shortestFoodEaten = data.getFoodEaten();
-            if (data.getMoves() < shortestMoves) shortestMoves = data.getMoves();
-            if (data.getTimeSpentMillis() < shortestTimeSpent) shortestTimeSpent = data.getTimeSpentMillis();
+    /**
+     * Writes the analytics snapshot next to the session log, tagged with the log's next session ID
+     * so a stale snapshot can be recognised. It is written to a temporary file and moved into
+     * place, so a crash leaves either the old snapshot or the new one. A failure here only costs
+     * a history load on the next startup.
+     * <p>
+     * Nothing is written until the analytics cover the whole history (restored from a snapshot or
+     * rebuilt from the log): before that the repository only holds the sessions saved since
+     * startup, and a snapshot of them tagged with the current next ID would pass for complete.
+     */
+    private static void saveAnalytics(boolean sync) {
+        if (!historyLoaded && !analyticsRestored) {
+            return;
+        }
+        Path temp = ANALYTICS_FILE.resolveSibling(ANALYTICS_FILE.getFileName() + ".tmp");
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(ANALYTICS_MAGIC);
+            out.writeInt(ANALYTICS_VERSION);
+            out.writeLong(sessionLog.getNextId());
+            repository.writeAnalytics(out);
+            CRC32C crc = new CRC32C();
+            crc.update(bytes.toByteArray());
+            out.writeInt((int) crc.getValue());
+            out.flush();
+
+            Files.createDirectories(ANALYTICS_FILE.toAbsolutePath().getParent());
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                if (sync) {
+                    channel.force(false);
+                }
+            }
+            Files.move(temp, ANALYTICS_FILE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Error writing analytics snapshot '{}'", ANALYTICS_FILE, e);
         }
-
-        int totalGames = dataList.size();
-        log.info("Calculating analytics for {} game sessions.", totalGames);
-
-        // Set totals
-        userAnalytics.setTotalGames(totalGames);
-        userAnalytics.setTotalMoves(totalMoves);
-        userAnalytics.setTotalFoodEaten(totalFoodEaten);
-        userAnalytics.setTotalTimeSpent(totalTimeSpent);
-
-        // Calculate and set averages
-        userAnalytics.setAverageLength(totalLength / totalGames);
-        userAnalytics.setAverageMoves(totalMoves / totalGames);
-        userAnalytics.setAverageFoodEaten(totalFoodEaten / totalGames);
-        userAnalytics.setAverageTimeSpent(totalTimeSpent / totalGames);
-
-        // Set longest metrics
-        userAnalytics.setLongestLength(longestLength);
-        userAnalytics.setLongestFoodEaten(longestFoodEaten);
-        userAnalytics.setLongestMoves(longestMoves);
-        userAnalytics.setLongestTimeSpent(longestTimeSpent);
-
-        // Set shortest metrics
-        userAnalytics.setShortestLength(shortestLength);
-        userAnalytics.setShortestFoodEaten(shortestFoodEaten);
-        userAnalytics.setShortestMoves(shortestMoves);
-        userAnalytics.setShortestTimeSpent(shortestTimeSpent);
-
-        log.info("User analytics calculated successfully: {}", userAnalytics);
     }
 
+    // A failure here only costs the leaderboard those sessions until the next catch-up
+    private static void addToLeaderboard(List<SessionData> batch, boolean sync) {
+        try {
+            leaderboard.add(batch, sync);
+        } catch (IOException e) {
+            log.error("Error updating the leaderboard index", e);
+        }
+    }
 }
@@ -0,0 +1,316 @@
+package org.example.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.log4j.Log4j2;
+import org.example.model.SessionData;
+import org.example.utils.Formatter;
+import org.example.utils.RankedIndex;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Ranked indexes of every session by score, length, duration and efficiency (food per move), for
+ * top-K lists, the rank of a session and its percentile, each in O(log n).
+ * <p>
+ * The indexes are backed by {@code leaderboard.idx}: a small header followed by one fixed-width
+ * record per session (its id and its key for every metric). New sessions are appended to it as
+ * they are saved, so at startup the indexes are rebuilt from this file without parsing the session
+ * history. A batch only reaches the indexes once it is in the file, so the two never disagree.
+ * When the history is loaded, {@link #catchUp} matches it against the indexes by session id and adds
+ * any sessions the file missed (say, after a crash or a failed write).
+ */
+@Log4j2
+public class Leaderboard {
+    private static final int MAGIC = 0x534E4B4C; // "SNKL"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int RECORD_BYTES = Long.BYTES * (1 + Metric.values().length);
+    private static final int READ_CHUNK_RECORDS = 16384;
+
+    @Getter
+    @RequiredArgsConstructor
+    public enum Metric {
+        SCORE("Score", SessionData::getScore),
+        LENGTH("Length", SessionData::getLength),
+        DURATION("Duration", SessionData::getTimeSpentMillis),
+        // Non-negative doubles order the same way as their bit patterns
+        EFFICIENCY("Efficiency", data -> Double.doubleToLongBits(foodPerMove(data.getFoodEaten(), data.getMoves())));
+
+        private final String label;
+        private final ToLongFunction<SessionData> key;
+
+        public String format(long key) {
+            return switch (this) {
+                case DURATION -> Formatter.formatTime(key);
+                case EFFICIENCY -> String.format("%.3f food/move", Double.longBitsToDouble(key));
+                default -> Long.toString(key);
+            };
+        }
+
+        // Takes doubles so the division is never an integer one
+        private static double foodPerMove(double foodEaten, double moves) {
+            return moves == 0 ? 0 : foodEaten / moves;
+        }
+    }
+
+    /**
+     * One leaderboard line: the session's id, its key for the metric and its 1-based rank.
+     */
+    @Value
+    public static class Entry {
+        long sessionId;
+        long key;
+        int rank;
+    }
+
+    private final Path file;
+    private final RankedIndex[] indexes = new RankedIndex[Metric.values().length];
+    private final long[] lastKeys = new long[Metric.values().length];
+    private long lastSessionId = -1; // the newest session (highest id), -1 when empty
+    private FileChannel channel; // null until loaded
+
+    public Leaderboard(Path file) {
+        this.file = file;
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = new RankedIndex();
+        }
+    }
+
+    /**
+     * Rebuilds the indexes from the index file, creating it if needed. A torn last record is cut off.
+     */
+    public synchronized void load() throws IOException {
+        if (channel != null) {
+            return;
+        }
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        if (!hasValidHeader()) {
+            log.warn("Leaderboard index '{}' is missing or unreadable; starting a new one", file);
+            resetFile();
+            return;
+        }
+
+        long records = (channel.size() - HEADER_BYTES) / RECORD_BYTES;
+        long validSize = HEADER_BYTES + records * RECORD_BYTES;
+        if (channel.size() != validSize) {
+            log.warn("Trimming a partial record from leaderboard index '{}'", file);
+            channel.truncate(validSize);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(READ_CHUNK_RECORDS * RECORD_BYTES);
+        long[] keys = new long[indexes.length];
+        long position = HEADER_BYTES;
+        while (position < validSize) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), validSize - position));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of leaderboard index " + file);
+                }
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                long id = buffer.getLong();
+                for (int m = 0; m < indexes.length; m++) {
+                    keys[m] = buffer.getLong();
+                }
+                insert(id, keys);
+            }
+            position += buffer.limit();
+        }
+        log.info("Loaded leaderboard index '{}' with {} sessions", file, records);
+    }
+
+    /**
+     * Appends newly saved sessions to the index file, then adds them to the indexes. If the write
+     * fails, the file is cut back to where it was and the indexes are left unchanged.
+     */
+    public synchronized void add(List<SessionData> sessions, boolean sync) throws IOException {
+        load();
+        ByteBuffer buffer = ByteBuffer.allocate(sessions.size() * RECORD_BYTES);
+        for (SessionData data : sessions) {
+            buffer.putLong(data.getId());
+            for (Metric metric : Metric.values()) {
+                buffer.putLong(metric.getKey().applyAsLong(data));
+            }
+        }
+
+        buffer.flip();
+        long start = channel.size();
+        try {
+            long position = start;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            if (sync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            try {
+                channel.truncate(start);
+            } catch (IOException truncateFailure) {
+                e.addSuppressed(truncateFailure); // a partial record is trimmed on the next load
+            }
+            throw e;
+        }
+
+        buffer.flip();
+        long[] keys = new long[indexes.length];
+        while (buffer.hasRemaining()) {
+            long id = buffer.getLong();
+            for (int m = 0; m < indexes.length; m++) {
+                keys[m] = buffer.getLong();
+            }
+            insert(id, keys);
+        }
+    }
+
+    /**
+     * Brings the leaderboard in line with the full session history. Each session is looked up by its
+     * id (and score), so the order the index file was written in does not matter: history sessions
+     * the leaderboard lacks are added, and if it holds any session the history does not (rows lost
+     * from the session log) it is rebuilt from scratch.
+     */
+    public synchronized void catchUp(SessionRepository.Snapshot history) throws IOException {
+        load();
+        RankedIndex scores = indexes[Metric.SCORE.ordinal()];
+        List<SessionData> missing = new ArrayList<>();
+        int matched = 0;
+        for (int i = 0; i < history.size(); i++) {
+            SessionData data = history.get(i);
+            if (scores.contains(data.getScore(), data.getId())) {
+                matched++;
+            } else {
+                missing.add(data);
+            }
+        }
+
+        if (matched < size()) {
+            log.warn("Leaderboard has {} sessions that are not in the history; rebuilding it", size() - matched);
+            clear();
+            missing.clear();
+            for (int i = 0; i < history.size(); i++) {
+                missing.add(history.get(i));
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        add(missing, true);
+        log.info("Added {} sessions missing from the leaderboard index", missing.size());
+    }
+
+    /**
+     * Empties the leaderboard, for a reset of the session history.
+     */
+    public synchronized void clear() throws IOException {
+        load();
+        resetFile();
+    }
+
+    public synchronized int size() {
+        return indexes[0].size();
+    }
+
+    /**
+     * The best {@code k} sessions for the metric, best first.
+     */
+    public synchronized List<Entry> top(Metric metric, int k) {
+        RankedIndex index = indexes[metric.ordinal()];
+        int limit = Math.min(k, index.size());
+        List<Entry> entries = new ArrayList<>(limit);
+        for (int position = 0; position < limit; position++) {
+            long key = index.keyAt(position);
+            entries.add(new Entry(index.idAt(position), key, index.rankOf(key)));
+        }
+        return entries;
+    }
+
+    /**
+     * The 1-based rank the session has (or would have) for the metric; ties share a rank.
+     */
+    public synchronized int rankOf(Metric metric, SessionData data) {
+        return indexes[metric.ordinal()].rankOf(metric.getKey().applyAsLong(data));
+    }
+
+    /**
+     * Percentage of sessions that did strictly worse than this one for the metric.
+     */
+    public synchronized double percentileOf(Metric metric, SessionData data) {
+        return percentileOf(metric, metric.getKey().applyAsLong(data));
+    }
+
+    /**
+     * Percentage of sessions with a strictly worse key for the metric.
+     */
+    public synchronized double percentileOf(Metric metric, long key) {
+        RankedIndex index = indexes[metric.ordinal()];
+        if (index.size() == 0) {
+            return 0;
+        }
+        return 100.0 * index.countBelow(key) / index.size();
+    }
+
+    /**
+     * The most recently added session's entry for the metric, or null when the leaderboard is
+     * empty. Answered from the index alone, without the session history.
+     */
+    public synchronized Entry last(Metric metric) {
+        if (lastSessionId < 0) {
+            return null;
+        }
+        long key = lastKeys[metric.ordinal()];
+        return new Entry(lastSessionId, key, indexes[metric.ordinal()].rankOf(key));
+    }
+
+    // Adds one session's keys to the indexes, keeping track of the newest session
+    private void insert(long id, long[] keys) {
+        for (int m = 0; m < indexes.length; m++) {
+            indexes[m].insert(keys[m], id);
+        }
+        if (id > lastSessionId) {
+            lastSessionId = id;
+            System.arraycopy(keys, 0, lastKeys, 0, keys.length);
+        }
+    }
+
+    private boolean hasValidHeader() throws IOException {
+        if (channel.size() < HEADER_BYTES) {
+            return false;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                return false;
+            }
+        }
+        header.flip();
+        return header.getInt() == MAGIC && header.getInt() == VERSION;
+    }
+
+    private void resetFile() throws IOException {
+        for (RankedIndex index : indexes) {
+            index.clear();
+        }
+        lastSessionId = -1;
+        channel.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION);
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+        channel.force(false);
+    }
+}
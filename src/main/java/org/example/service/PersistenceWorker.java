@@ -0,0 +1,236 @@
+package org.example.service;
+
+import lombok.extern.log4j.Log4j2;
+import org.example.model.Replay;
+import org.example.metrics.Metrics;
+import org.example.model.SessionData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The single background thread that saves finished games. Sessions (and their replays) are queued
+ * on a bounded queue; the worker takes whatever has piled up, writes the sessions as one group
+ * commit through {@link FileService#writeBatch}, then writes the replays. A batch that fails to
+ * save is kept and retried, with a growing delay, until it succeeds; nothing is dropped silently.
+ * <p>
+ * How often the CSV is forced to disk is set with {@code -Dsnake.fsync}:
+ * <ul>
+ *     <li>{@code batch}: after every group commit</li>
+ *     <li>{@code interval} (default): at most once per {@code -Dsnake.fsyncIntervalMs} (1000 ms)</li>
+ *     <li>{@code never}: leave it to the operating system</li>
+ * </ul>
+ * Rows are always flushed to the operating system after each batch. A shutdown hook drains the
+ * queue and syncs before the JVM exits; games submitted once it has started are saved on the
+ * submitting thread.
+ */
+@Log4j2
+public class PersistenceWorker {
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final int MAX_BATCH = 256;
+    private static final long RETRY_DELAY_MS = 100;
+    private static final long MAX_RETRY_DELAY_MS = 5000;
+    private static final long SHUTDOWN_DRAIN_MS = 5000;
+
+    public enum SyncPolicy { BATCH, INTERVAL, NEVER }
+
+    private static final SyncPolicy SYNC_POLICY = parseSyncPolicy(System.getProperty("snake.fsync", "interval"));
+    private static final long SYNC_INTERVAL_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("snake.fsyncIntervalMs", 1000));
+
+    private record Job(SessionData session, Replay replay, long submittedAt) {
+    }
+
+    private static final Job STOP = new Job(null, null, 0); // queued by the shutdown hook to end the worker
+
+    private static final BlockingQueue<Job> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private static Thread worker;
+    private static volatile boolean shuttingDown;
+    // Submits that saw shuttingDown false and may still be putting their job on the queue
+    private static final AtomicInteger submitting = new AtomicInteger();
+    private static volatile List<Job> unsaved = List.of(); // a failed batch the worker stopped with
+
+    /**
+     * Queues a finished game for saving. The replay may be null. Blocks only if the queue is full.
+     */
+    public static void submit(SessionData session, Replay replay) {
+        ensureStarted();
+        submitting.incrementAndGet();
+        try {
+            if (shuttingDown) {
+                // The worker may already be gone; save on the caller's thread rather than losing it
+                saveDirectly(new Job(session, replay, System.nanoTime()));
+                return;
+            }
+            queue.put(new Job(session, replay, System.nanoTime()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while queueing session {}; saving it directly", session);
+            saveDirectly(new Job(session, replay, System.nanoTime()));
+        } finally {
+            submitting.decrementAndGet();
+        }
+    }
+
+    /**
+     * Number of games waiting to be saved.
+     */
+    public static int getQueueDepth() {
+        return queue.size();
+    }
+
+    public static SyncPolicy getSyncPolicy() {
+        return SYNC_POLICY;
+    }
+
+    private static synchronized void ensureStarted() {
+        if (worker != null) {
+            return;
+        }
+        worker = new Thread(PersistenceWorker::run, "snake-persistence");
+        worker.setDaemon(true);
+        worker.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(PersistenceWorker::shutdown, "snake-persistence-shutdown"));
+        log.info("Persistence worker started (fsync policy {})", SYNC_POLICY);
+    }
+
+    private static void run() {
+        List<Job> batch = new ArrayList<>(MAX_BATCH);
+        long lastSync = System.nanoTime();
+        boolean unsynced = false;
+        boolean stopping = false;
+        int failures = 0; // consecutive failed saves of the batch still held
+
+        while (!stopping) {
+            try {
+                if (failures > 0) {
+                    TimeUnit.MILLISECONDS.sleep(retryDelayMillis(failures));
+                }
+                if (batch.size() < MAX_BATCH) {
+                    // Wake up at least once per interval so a quiet period still gets synced
+                    Job first = queue.poll(batch.isEmpty() ? SYNC_INTERVAL_NANOS : 0, TimeUnit.NANOSECONDS);
+                    if (first != null) {
+                        batch.add(first);
+                        queue.drainTo(batch, MAX_BATCH - batch.size());
+                    }
+                }
+            } catch (InterruptedException e) {
+                stopping = true;
+            }
+            stopping |= batch.remove(STOP);
+
+            long now = System.nanoTime();
+            boolean sync = stopping || SYNC_POLICY == SyncPolicy.BATCH
+                    || (SYNC_POLICY == SyncPolicy.INTERVAL && now - lastSync >= SYNC_INTERVAL_NANOS);
+            if (!batch.isEmpty()) {
+                log.debug("Saving {} game(s), {} still queued", batch.size(), queue.size());
+                if (persist(batch, sync)) {
+                    unsynced = !sync;
+                    batch.clear();
+                    failures = 0;
+                } else if (stopping) {
+                    unsaved = List.copyOf(batch); // the shutdown hook tries once more
+                } else {
+                    failures++;
+                    log.warn("Saving {} game(s) failed; retrying in {} ms", batch.size(), retryDelayMillis(failures));
+                    continue;
+                }
+            } else if (sync && unsynced) {
+                FileService.sync();
+                unsynced = false;
+            }
+            if (sync) {
+                lastSync = now;
+            }
+        }
+    }
+
+    // Lets the worker finish what is queued, then saves anything left behind; runs on JVM exit
+    private static void shutdown() {
+        // Every submit from here on saves directly; the ones already past the check are waited for below
+        shuttingDown = true;
+        Thread current;
+        synchronized (PersistenceWorker.class) {
+            current = worker;
+        }
+        try {
+            if (queue.offer(STOP, 5, TimeUnit.SECONDS)) {
+                current.join(TimeUnit.SECONDS.toMillis(10));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<Job> remaining = new ArrayList<>(unsaved);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SHUTDOWN_DRAIN_MS);
+        while (true) {
+            int inFlight = submitting.get();
+            queue.drainTo(remaining);
+            if (inFlight == 0 || System.nanoTime() >= deadline) {
+                break;
+            }
+            Thread.onSpinWait(); // a submit is still putting its job on the queue
+        }
+        remaining.remove(STOP);
+        if (!remaining.isEmpty()) {
+            log.info("Saving {} queued game(s) before exit", remaining.size());
+            if (!persist(remaining, true)) {
+                log.error("Could not save {} game(s) before exit: {}", remaining.size(), sessionsOf(remaining));
+            }
+        }
+        FileService.sync();
+    }
+
+    private static void saveDirectly(Job job) {
+        if (!persist(List.of(job), true)) {
+            log.error("Could not save session {}", job.session());
+        }
+    }
+
+    /**
+     * Writes the sessions as one batch, then their replays. Returns false, having written nothing,
+     * if the batch could not be saved.
+     */
+    private static boolean persist(List<Job> jobs, boolean sync) {
+        if (jobs.isEmpty()) {
+            return true;
+        }
+        if (!FileService.writeBatch(sessionsOf(jobs), sync)) {
+            return false;
+        }
+
+        for (Job job : jobs) {
+            if (job.replay() != null) {
+                ReplayService.saveReplay(job.session().getId(), job.replay());
+            }
+            Metrics.PERSIST_LATENCY.recordSince(job.submittedAt());
+        }
+        return true;
+    }
+
+    private static List<SessionData> sessionsOf(List<Job> jobs) {
+        List<SessionData> sessions = new ArrayList<>(jobs.size());
+        for (Job job : jobs) {
+            sessions.add(job.session());
+        }
+        return sessions;
+    }
+
+    private static long retryDelayMillis(int failures) {
+        return Math.min(MAX_RETRY_DELAY_MS, RETRY_DELAY_MS << Math.min(failures - 1, 10));
+    }
+
+    private static SyncPolicy parseSyncPolicy(String value) {
+        try {
+            return SyncPolicy.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            log.warn("Unknown snake.fsync value '{}', using interval", value);
+            return SyncPolicy.INTERVAL;
+        }
+    }
+}
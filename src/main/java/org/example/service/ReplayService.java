@@ -0,0 +1,108 @@
+package org.example.service;
+
+import lombok.extern.log4j.Log4j2;
+import org.example.model.Replay;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads and writes replay files. A replay file is a small binary header (magic, version, seed,
+ * board, mode, tick rate, tick count) followed by the encoded turn inputs. Saved replays are named
+ * after the session they belong to, {@code replay-<session id>.bin}.
+ */
+@Log4j2
+public class ReplayService {
+    private static final Path REPLAY_DIR = FileService.DATA_DIR.resolve("replays");
+    private static final int MAGIC = 0x534E4B52; // "SNKR"
+    // Version 1 was recorded before food was placed by rank among the free cells, so it no longer plays back
+    private static final int VERSION = 2;
+
+    /**
+     * The file the replay of the given session is saved to.
+     */
+    public static Path replayFile(long sessionId) {
+        return REPLAY_DIR.resolve("replay-" + sessionId + ".bin");
+    }
+
+    /**
+     * Saves the replay of the given session to {@link #replayFile} and returns its path, or null on
+     * failure. Does not throw exceptions; all errors are logged.
+     */
+    public static Path saveReplay(long sessionId, Replay replay) {
+        Path path = replayFile(sessionId);
+        try {
+            Files.createDirectories(REPLAY_DIR);
+            write(replay, path);
+            log.info("Replay written to '{}' ({} ticks, {} input bytes)", path, replay.getTotalTicks(), replay.getInputs().length);
+            return path;
+        } catch (IOException e) {
+            log.error("Error writing replay file '{}'", path, e);
+            return null;
+        }
+    }
+
+    /**
+     * Deletes every saved replay. Session IDs start again from 0 after a reset, so old replays would
+     * otherwise be taken for those of new sessions. Errors are logged.
+     */
+    public static void deleteAll() {
+        if (!Files.isDirectory(REPLAY_DIR)) {
+            return;
+        }
+        try (DirectoryStream<Path> replays = Files.newDirectoryStream(REPLAY_DIR, "replay-*.bin")) {
+            for (Path replay : replays) {
+                Files.deleteIfExists(replay);
+            }
+            log.info("Deleted the replays in '{}'", REPLAY_DIR);
+        } catch (IOException e) {
+            log.error("Error deleting the replays in '{}'", REPLAY_DIR, e);
+        }
+    }
+
+    public static void write(Replay replay, Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(replay.getSeed());
+            out.writeInt(replay.getGridWidth());
+            out.writeInt(replay.getGridHeight());
+            out.writeUTF(replay.getGameMode());
+            out.writeInt(replay.getTicksPerSecond());
+            out.writeLong(replay.getTotalTicks());
+            out.writeInt(replay.getInputs().length);
+            out.write(replay.getInputs());
+        }
+    }
+
+    public static Replay read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a replay file: " + path);
+            }
+            int version = in.readShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported replay version " + version + " in " + path);
+            }
+
+            Replay replay = Replay.builder()
+                    .seed(in.readLong())
+                    .gridWidth(in.readInt())
+                    .gridHeight(in.readInt())
+                    .gameMode(in.readUTF())
+                    .ticksPerSecond(in.readInt())
+                    .totalTicks(in.readLong())
+                    .build();
+            byte[] inputs = new byte[in.readInt()];
+            in.readFully(inputs);
+            replay.setInputs(inputs);
+            return replay;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package org.example.service;
+
+import lombok.Getter;
+import org.example.model.SessionData;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Session totals pre-aggregated per hour and per day, separately for each game mode, and updated
+ * on every append. A time-window query adds up whole days from the daily buckets and the partial
+ * days at either end from the hourly buckets, so its cost depends on the length of the window,
+ * not on the number of sessions in it.
+ * <p>
+ * Hourly buckets are only kept for the {@value #HOURLY_RETENTION_DAYS} days before the latest
+ * session, which keeps the index (and the analytics snapshot it is saved in) small; a query bound
+ * older than that is rounded down to midnight. Daily buckets are kept for good.
+ * <p>
+ * Session dates are local date-times; buckets follow the same local clock.
+ */
+public class RollupIndex {
+    private static final long HOUR = 3600;
+    private static final long DAY = 24 * HOUR;
+    private static final int HOURLY_RETENTION_DAYS = 32;
+
+    // game mode -> bucket start (epoch seconds) -> totals
+    private final Map<String, NavigableMap<Long, Totals>> hourly = new HashMap<>();
+    private final Map<String, NavigableMap<Long, Totals>> daily = new HashMap<>();
+    private long hourlyHorizon = Long.MIN_VALUE; // midnight starting the oldest day with hourly buckets
+
+    public synchronized void add(SessionData data) {
+        long second = data.getDate().toEpochSecond(ZoneOffset.UTC);
+        long day = Math.floorDiv(second, DAY) * DAY;
+        bucket(daily, data.getGameMode(), day).add(data);
+        if (day < hourlyHorizon) {
+            return; // queries round this far back to whole days
+        }
+        bucket(hourly, data.getGameMode(), Math.floorDiv(second, HOUR) * HOUR).add(data);
+
+        // Whole days only, so the hours between midnight and a query bound are never missing
+        long horizon = day - (HOURLY_RETENTION_DAYS - 1) * DAY;
+        if (horizon > hourlyHorizon) {
+            hourlyHorizon = horizon;
+            for (NavigableMap<Long, Totals> buckets : hourly.values()) {
+                buckets.headMap(hourlyHorizon, false).clear();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        hourly.clear();
+        daily.clear();
+        hourlyHorizon = Long.MIN_VALUE;
+    }
+
+    /**
+     * Totals for the sessions of the given mode (null for every mode) played between {@code from}
+     * and {@code to}. Both bounds are rounded down to the hour, or to midnight if they are older
+     * than the hourly buckets; {@code to} is exclusive.
+     */
+    public synchronized Totals query(String gameMode, LocalDateTime from, LocalDateTime to) {
+        long start = roundDown(from.toEpochSecond(ZoneOffset.UTC));
+        long end = roundDown(to.toEpochSecond(ZoneOffset.UTC));
+        Totals result = new Totals();
+        if (start >= end) {
+            return result;
+        }
+
+        for (String mode : daily.keySet()) {
+            if (gameMode != null && !gameMode.equals(mode)) {
+                continue;
+            }
+
+            long firstDay = Math.floorDiv(start + DAY - 1, DAY) * DAY;
+            long lastDay = Math.floorDiv(end, DAY) * DAY;
+            if (firstDay >= lastDay) {
+                sum(hourly.get(mode), start, end, result);
+            } else {
+                sum(hourly.get(mode), start, firstDay, result);
+                sum(daily.get(mode), firstDay, lastDay, result);
+                sum(hourly.get(mode), lastDay, end, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Totals for the given mode (null for every mode) over the last {@code days} days, including
+     * the current hour.
+     */
+    public Totals lastDays(String gameMode, int days) {
+        LocalDateTime now = LocalDateTime.now();
+        return query(gameMode, now.minusDays(days), now.truncatedTo(ChronoUnit.HOURS).plusHours(1));
+    }
+
+    private long roundDown(long second) {
+        long hour = Math.floorDiv(second, HOUR) * HOUR;
+        return hour < hourlyHorizon ? Math.floorDiv(second, DAY) * DAY : hour;
+    }
+
+    /**
+     * Writes every bucket, so the index can be restored without the history.
+     */
+    public synchronized void writeTo(DataOutput out) throws IOException {
+        out.writeLong(hourlyHorizon);
+        out.writeInt(daily.size());
+        for (String mode : daily.keySet()) {
+            out.writeUTF(mode);
+            writeBuckets(hourly.getOrDefault(mode, Collections.emptyNavigableMap()), out);
+            writeBuckets(daily.get(mode), out);
+        }
+    }
+
+    public static RollupIndex readFrom(DataInput in) throws IOException {
+        RollupIndex index = new RollupIndex();
+        index.hourlyHorizon = in.readLong();
+        int modes = in.readInt();
+        for (int m = 0; m < modes; m++) {
+            String mode = in.readUTF();
+            index.hourly.put(mode, readBuckets(in));
+            index.daily.put(mode, readBuckets(in));
+        }
+        return index;
+    }
+
+    private static void writeBuckets(NavigableMap<Long, Totals> buckets, DataOutput out) throws IOException {
+        out.writeInt(buckets.size());
+        for (Map.Entry<Long, Totals> bucket : buckets.entrySet()) {
+            out.writeLong(bucket.getKey());
+            bucket.getValue().writeTo(out);
+        }
+    }
+
+    private static NavigableMap<Long, Totals> readBuckets(DataInput in) throws IOException {
+        NavigableMap<Long, Totals> buckets = new TreeMap<>();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            buckets.put(in.readLong(), Totals.readFrom(in));
+        }
+        return buckets;
+    }
+
+    private static Totals bucket(Map<String, NavigableMap<Long, Totals>> buckets, String gameMode, long start) {
+        return buckets.computeIfAbsent(gameMode, mode -> new TreeMap<>()).computeIfAbsent(start, s -> new Totals());
+    }
+
+    private static void sum(NavigableMap<Long, Totals> buckets, long from, long to, Totals result) {
+        if (buckets != null && from < to) {
+            for (Totals totals : buckets.subMap(from, true, to, false).values()) {
+                result.merge(totals);
+            }
+        }
+    }
+
+    /**
+     * Summed session metrics for one bucket or one query.
+     */
+    @Getter
+    public static class Totals {
+        private long games;
+        private long totalScore;
+        private long totalLength;
+        private long totalFoodEaten;
+        private long totalMoves;
+        private long totalTimeSpent;
+        private long bestScore;
+
+        private void add(SessionData data) {
+            games++;
+            totalScore += data.getScore();
+            totalLength += data.getLength();
+            totalFoodEaten += data.getFoodEaten();
+            totalMoves += data.getMoves();
+            totalTimeSpent += data.getTimeSpentMillis();
+            bestScore = Math.max(bestScore, data.getScore());
+        }
+
+        private void merge(Totals other) {
+            games += other.games;
+            totalScore += other.totalScore;
+            totalLength += other.totalLength;
+            totalFoodEaten += other.totalFoodEaten;
+            totalMoves += other.totalMoves;
+            totalTimeSpent += other.totalTimeSpent;
+            bestScore = Math.max(bestScore, other.bestScore);
+        }
+
+        private void writeTo(DataOutput out) throws IOException {
+            out.writeLong(games);
+            out.writeLong(totalScore);
+            out.writeLong(totalLength);
+            out.writeLong(totalFoodEaten);
+            out.writeLong(totalMoves);
+            out.writeLong(totalTimeSpent);
+            out.writeLong(bestScore);
+        }
+
+        private static Totals readFrom(DataInput in) throws IOException {
+            Totals totals = new Totals();
+            totals.games = in.readLong();
+            totals.totalScore = in.readLong();
+            totals.totalLength = in.readLong();
+            totals.totalFoodEaten = in.readLong();
+            totals.totalMoves = in.readLong();
+            totals.totalTimeSpent = in.readLong();
+            totals.bestScore = in.readLong();
+            return totals;
+        }
+
+        public double getAverageScore() {
+            return games == 0 ? 0 : (double) totalScore / games;
+        }
+
+        public double getAverageLength() {
+            return games == 0 ? 0 : (double) totalLength / games;
+        }
+
+        public long getAverageTimeSpent() {
+            return games == 0 ? 0 : totalTimeSpent / games;
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package org.example.service;
+
+import com.opencsv.CSVWriter;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import org.example.model.SessionData;
+import org.example.model.UserAnalytics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Binary session storage with one file per field. Each column file is a flat array of
+ * little-endian ints or longs, so row {@code i} of a column sits at {@code i * width}; the date is
+ * stored as UTC epoch nanoseconds and the game mode as an index.
+ * <p>
+ * Appends go through one {@link FileChannel} per column. Reads memory-map the columns, and because
+ * every analytics metric only needs its own column, a scan touches nothing but the bytes it sums.
+ * <p>
+ * A crash in the middle of an append can leave the columns with different lengths; opening the
+ * store truncates them back to the last complete row.
+ */
+@Log4j2
+public class SessionColumnStore implements Closeable {
+    public static final Path DEFAULT_DIR = FileService.DATA_DIR.resolve("sessions");
+
+    private static final int BATCH_SIZE = 8192;
+
+    private enum Column {
+        ID("id", Long.BYTES),
+        SCORE("score", Long.BYTES),
+        LENGTH("length", Integer.BYTES),
+        FOOD_EATEN("foodEaten", Integer.BYTES),
+        MOVES("moves", Integer.BYTES),
+        TIME_SPENT("timeSpentMillis", Long.BYTES),
+        DATE("date", Long.BYTES),
+        GAME_MODE("gameMode", Integer.BYTES); // index into GAME_MODES
+
+        private final String fileName;
+        private final int width;
+        // Rows per mapping, so a single mapping never exceeds the 2 GB buffer limit
+        private final long rowsPerWindow;
+
+        Column(String name, int width) {
+            this.fileName = name + ".col";
+            this.width = width;
+            this.rowsPerWindow = Integer.MAX_VALUE / width;
+        }
+    }
+
+    private static final Column[] COLUMNS = Column.values();
+    private static final String[] GAME_MODES = {"Normal", "Timed"};
+
+    @Getter
+    private final Path directory;
+    private final FileChannel[] channels = new FileChannel[COLUMNS.length];
+    private final ByteBuffer[] appendBuffers = new ByteBuffer[COLUMNS.length];
+    private long size;
+
+    /**
+     * Opens the store in the given directory, creating empty columns if needed.
+     */
+    public SessionColumnStore(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+
+        long rows = Long.MAX_VALUE;
+        boolean[] added = new boolean[COLUMNS.length];
+        try {
+            for (Column column : COLUMNS) {
+                Path file = directory.resolve(column.fileName);
+                added[column.ordinal()] = !Files.exists(file);
+                FileChannel channel = FileChannel.open(file,
+                        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                channels[column.ordinal()] = channel;
+                appendBuffers[column.ordinal()] = ByteBuffer.allocateDirect(BATCH_SIZE * column.width)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                if (!added[column.ordinal()]) {
+                    rows = Math.min(rows, channel.size() / column.width);
+                }
+            }
+            if (rows == Long.MAX_VALUE) {
+                rows = 0; // New store
+            }
+
+            // A column added since the store was written is filled with zeros (the first value)
+            for (Column column : COLUMNS) {
+                if (added[column.ordinal()] && rows > 0) {
+                    log.info("Adding column '{}' to '{}' for {} existing rows", column.fileName, directory, rows);
+                    channels[column.ordinal()].write(ByteBuffer.allocate(1), rows * column.width - 1);
+                }
+            }
+
+            // Drop any partially appended row
+            for (Column column : COLUMNS) {
+                FileChannel channel = channels[column.ordinal()];
+                if (channel.size() != rows * column.width) {
+                    log.warn("Truncating column '{}' in '{}' to {} rows", column.fileName, directory, rows);
+                    channel.truncate(rows * column.width);
+                }
+                channel.position(rows * column.width);
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        this.size = rows;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public void append(SessionData data) throws IOException {
+        appendAll(List.of(data));
+    }
+
+    /**
+     * Appends the sessions in order. Each column is written with one channel write per
+     * {@value #BATCH_SIZE} rows.
+     */
+    public void appendAll(List<SessionData> sessions) throws IOException {
+        for (int from = 0; from < sessions.size(); from += BATCH_SIZE) {
+            List<SessionData> batch = sessions.subList(from, Math.min(from + BATCH_SIZE, sessions.size()));
+            for (SessionData data : batch) {
+                appendBuffers[Column.ID.ordinal()].putLong(data.getId());
+                appendBuffers[Column.SCORE.ordinal()].putLong(data.getScore());
+                appendBuffers[Column.LENGTH.ordinal()].putInt(data.getLength());
+                appendBuffers[Column.FOOD_EATEN.ordinal()].putInt(data.getFoodEaten());
+                appendBuffers[Column.MOVES.ordinal()].putInt(data.getMoves());
+                appendBuffers[Column.TIME_SPENT.ordinal()].putLong(data.getTimeSpentMillis());
+                appendBuffers[Column.DATE.ordinal()].putLong(toEpochNanos(data.getDate()));
+                appendBuffers[Column.GAME_MODE.ordinal()].putInt(gameModeIndex(data.getGameMode()));
+            }
+
+            for (Column column : COLUMNS) {
+                ByteBuffer buffer = appendBuffers[column.ordinal()];
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channels[column.ordinal()].write(buffer);
+                }
+                buffer.clear();
+            }
+            size += batch.size();
+        }
+    }
+
+    /**
+     * Drops every row from the given one on.
+     */
+    public void truncate(long rows) throws IOException {
+        if (rows < 0 || rows > size) {
+            throw new IllegalArgumentException("Cannot truncate " + size + " rows to " + rows);
+        }
+        for (Column column : COLUMNS) {
+            FileChannel channel = channels[column.ordinal()];
+            channel.truncate(rows * column.width);
+            channel.position(rows * column.width);
+        }
+        size = rows;
+    }
+
+    /**
+     * Calculates the same analytics as {@link FileService} by scanning the mapped columns, without
+     * creating an object per row.
+     */
+    public UserAnalytics computeAnalytics() throws IOException {
+        return aggregate().toAnalytics();
+    }
+
+    /**
+     * Feeds every column into a fresh aggregator, one column at a time.
+     */
+    public AnalyticsAggregator aggregate() throws IOException {
+        AnalyticsAggregator aggregator = new AnalyticsAggregator();
+        scan(Column.SCORE, aggregator.getScore());
+        scan(Column.LENGTH, aggregator.getLength());
+        scan(Column.FOOD_EATEN, aggregator.getFoodEaten());
+        scan(Column.MOVES, aggregator.getMoves());
+        scan(Column.TIME_SPENT, aggregator.getTimeSpent());
+        return aggregator;
+    }
+
+    /**
+     * Calls the action with every stored session in order. The session objects are only built here,
+     * for callers that really need them (such as exporting).
+     */
+    public void forEach(Consumer<SessionData> action) throws IOException {
+        long window = Long.MAX_VALUE;
+        for (Column column : COLUMNS) {
+            window = Math.min(window, column.rowsPerWindow);
+        }
+
+        for (long first = 0; first < size; first += window) {
+            int rows = (int) Math.min(window, size - first);
+            LongBuffer ids = map(Column.ID, first, rows).asLongBuffer();
+            LongBuffer scores = map(Column.SCORE, first, rows).asLongBuffer();
+            IntBuffer lengths = map(Column.LENGTH, first, rows).asIntBuffer();
+            IntBuffer foodEaten = map(Column.FOOD_EATEN, first, rows).asIntBuffer();
+            IntBuffer moves = map(Column.MOVES, first, rows).asIntBuffer();
+            LongBuffer timeSpent = map(Column.TIME_SPENT, first, rows).asLongBuffer();
+            LongBuffer dates = map(Column.DATE, first, rows).asLongBuffer();
+            IntBuffer modes = map(Column.GAME_MODE, first, rows).asIntBuffer();
+
+            for (int i = 0; i < rows; i++) {
+                action.accept(SessionData.builder()
+                        .id(ids.get(i))
+                        .score(scores.get(i))
+                        .length(lengths.get(i))
+                        .foodEaten(foodEaten.get(i))
+                        .moves(moves.get(i))
+                        .timeSpentMillis(timeSpent.get(i))
+                        .date(fromEpochNanos(dates.get(i)))
+                        .gameMode(GAME_MODES[Math.floorMod(modes.get(i), GAME_MODES.length)])
+                        .build());
+            }
+        }
+    }
+
+    /**
+     * Forces all appended rows to disk.
+     */
+    public void sync() throws IOException {
+        for (FileChannel channel : channels) {
+            channel.force(false);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (FileChannel channel : channels) {
+            if (channel == null) {
+                continue;
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Appends every row of a session CSV file (a log segment or an export) to the store in the given
+     * directory and returns the number of rows imported. Rows are read the way the session log
+     * reads them: rows that cannot be parsed or fail their checksum are logged and skipped, and an
+     * epoch marker discards every session imported from the file before it, since a reset deleted
+     * them.
+     */
+    public static long importCsv(Path csvFile, Path directory) throws IOException {
+        long imported;
+        try (SessionColumnStore store = new SessionColumnStore(directory)) {
+            long start = store.size();
+            List<SessionData> batch = new ArrayList<>(BATCH_SIZE);
+            try {
+                SessionLog.readSegment(csvFile, Long.MAX_VALUE, data -> {
+                    batch.add(data);
+                    if (batch.size() == BATCH_SIZE) {
+                        try {
+                            store.appendAll(batch);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        batch.clear();
+                    }
+                }, () -> {
+                    batch.clear();
+                    try {
+                        store.truncate(start);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            store.appendAll(batch);
+            store.sync();
+            imported = store.size() - start;
+        }
+        log.info("Imported {} sessions from '{}' into '{}'", imported, csvFile, directory);
+        return imported;
+    }
+
+    /**
+     * Writes every session in the store to a CSV file, replacing the file, and returns the number of
+     * rows written. The file has the session log's columns without the checksum, so the log and
+     * {@link #importCsv} read it back as it was written.
+     */
+    public static long exportCsv(Path directory, Path csvFile) throws IOException {
+        long[] exported = {0};
+        try (SessionColumnStore store = new SessionColumnStore(directory);
+             Writer out = Files.newBufferedWriter(csvFile, StandardCharsets.UTF_8);
+             CSVWriter csvWriter = new CSVWriter(out)) {
+            csvWriter.writeNext(FileService.HEADERS);
+            store.forEach(data -> {
+                csvWriter.writeNext(data.toCsvRow());
+                exported[0]++;
+            });
+        }
+        log.info("Exported {} sessions from '{}' to '{}'", exported[0], directory, csvFile);
+        return exported[0];
+    }
+
+    private void scan(Column column, AnalyticsAggregator.Metric metric) throws IOException {
+        for (long first = 0; first < size; first += column.rowsPerWindow) {
+            int rows = (int) Math.min(column.rowsPerWindow, size - first);
+            ByteBuffer mapped = map(column, first, rows);
+
+            if (column.width == Long.BYTES) {
+                LongBuffer values = mapped.asLongBuffer();
+                for (int i = 0; i < rows; i++) {
+                    metric.record(values.get(i));
+                }
+            } else {
+                IntBuffer values = mapped.asIntBuffer();
+                for (int i = 0; i < rows; i++) {
+                    metric.record(values.get(i));
+                }
+            }
+        }
+    }
+
+    private ByteBuffer map(Column column, long firstRow, int rows) throws IOException {
+        MappedByteBuffer mapped = channels[column.ordinal()]
+                .map(FileChannel.MapMode.READ_ONLY, firstRow * column.width, (long) rows * column.width);
+        return mapped.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // Unknown modes are stored as Normal
+    private static int gameModeIndex(String gameMode) {
+        for (int i = 0; i < GAME_MODES.length; i++) {
+            if (GAME_MODES[i].equals(gameMode)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private static long toEpochNanos(LocalDateTime date) {
+        return date.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + date.getNano();
+    }
+
+    private static LocalDateTime fromEpochNanos(long nanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L),
+                (int) Math.floorMod(nanos, 1_000_000_000L), ZoneOffset.UTC);
+    }
+}
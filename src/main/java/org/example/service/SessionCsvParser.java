@@ -0,0 +1,382 @@
+package org.example.service;
+
+import org.example.model.SessionData;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * Streaming reader for the session CSV. Rows are read one at a time into a reusable character
+ * buffer and fields are parsed in place: numbers are accumulated digit by digit and dates are
+ * decoded from their characters, so reading a row creates no strings. Memory stays bounded by
+ * the buffer no matter how large the file is.
+ * <p>
+ * Fields may be quoted; a doubled quote inside a quoted field is not supported since the session
+ * file never contains one.
+ * <p>
+ * Two row layouts exist. The session log ends every row with a CRC32C of its values, announced by a
+ * {@value #CHECKSUM_HEADER} column in its header; exports and the files of older versions have no
+ * such column. {@link #readHeader()} tells them apart, so a row is never mistaken for the other layout.
+ */
+public class SessionCsvParser implements Closeable {
+    private static final int MAX_FIELDS = 16;
+    private static final String CHECKSUM_HEADER = "Crc";
+    private static final int GAME_MODE_FIELD = 7;
+
+    private final Reader reader;
+    private char[] buffer = new char[64 * 1024];
+    private int position;  // start of the unread data
+    private int limit;     // end of the valid data
+    private boolean eof;
+
+    // Field boundaries of the current row, quotes excluded
+    private final int[] fieldStart = new int[MAX_FIELDS];
+    private final int[] fieldEnd = new int[MAX_FIELDS];
+    private int fieldCount;
+    private long rowNumber;
+    private boolean checksummed;  // the header has a checksum column
+
+    private final CRC32C crc = new CRC32C();
+    private byte[] scratch = new byte[64];
+
+    public SessionCsvParser(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Advances to the next non-empty row. Returns false at the end of the input.
+     */
+    public boolean next() throws IOException {
+        while (true) {
+            int lineEnd = findLineEnd();
+            if (lineEnd < 0) {
+                return false;
+            }
+            rowNumber++;
+            int lineStart = position;
+            position = lineEnd + 1;
+
+            int end = lineEnd;
+            if (end > lineStart && buffer[end - 1] == '\r') end--;
+            if (end > lineStart) {
+                splitFields(lineStart, end);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Reads the header row and with it the layout of the rows that follow. Returns false for an
+     * empty file.
+     */
+    public boolean readHeader() throws IOException {
+        if (!next()) {
+            return false;
+        }
+        checksummed = fieldEquals(fieldCount - 1, CHECKSUM_HEADER);
+        return true;
+    }
+
+    /**
+     * Sets the layout directly, for input that starts after the header (such as the tail of a log
+     * segment).
+     */
+    public void setChecksummed(boolean checksummed) {
+        this.checksummed = checksummed;
+    }
+
+    public boolean isChecksummed() {
+        return checksummed;
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Whether the current row ends with a checksum. Always true in a file with a checksum column. A
+     * file without one can still hold checksummed rows: older versions copied a legacy history in as
+     * the first log segment and appended to it. Those rows end with a number, which neither a date
+     * nor a game mode is.
+     */
+    public boolean hasChecksum() {
+        return checksummed || isDigits(fieldCount - 1);
+    }
+
+    /**
+     * Number of values in the current row, not counting its checksum.
+     */
+    public int getValueCount() {
+        return hasChecksum() ? fieldCount - 1 : fieldCount;
+    }
+
+    /**
+     * True if the current row has no checksum or its checksum matches its values.
+     */
+    public boolean hasValidChecksum() {
+        if (!hasChecksum()) {
+            return true;
+        }
+        try {
+            return getLong(fieldCount - 1) == checksum(fieldCount - 1);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    // 1-based line number of the current row
+    public long getRowNumber() {
+        return rowNumber;
+    }
+
+    public long getLong(int field) {
+        checkField(field);
+        int i = fieldStart[field];
+        int end = trimEnd(field);
+        while (i < end && buffer[i] == ' ') i++;
+
+        boolean negative = i < end && buffer[i] == '-';
+        if (negative) i++;
+        if (i == end) {
+            throw new NumberFormatException("Empty number in field " + field + " of row " + rowNumber);
+        }
+
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Invalid number in field " + field + " of row " + rowNumber);
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    public int getInt(int field) {
+        return Math.toIntExact(getLong(field));
+    }
+
+    /**
+     * Parses an ISO local date-time as written by {@link LocalDateTime#toString()}:
+     * {@code yyyy-MM-ddTHH:mm[:ss[.fraction]]}.
+     */
+    public LocalDateTime getDateTime(int field) {
+        checkField(field);
+        int start = fieldStart[field];
+        int end = trimEnd(field);
+        int length = end - start;
+
+        if (length >= 16 && buffer[start + 4] == '-' && buffer[start + 7] == '-' && buffer[start + 10] == 'T'
+                && buffer[start + 13] == ':') {
+            int year = digits(start, 4);
+            int month = digits(start + 5, 2);
+            int day = digits(start + 8, 2);
+            int hour = digits(start + 11, 2);
+            int minute = digits(start + 14, 2);
+            int second = 0;
+            int nano = 0;
+
+            if (length >= 19 && buffer[start + 16] == ':') {
+                second = digits(start + 17, 2);
+                if (length > 20 && buffer[start + 19] == '.') {
+                    int fractionDigits = Math.min(length - 20, 9);
+                    nano = digits(start + 20, fractionDigits);
+                    for (int i = fractionDigits; i < 9; i++) nano *= 10;
+                }
+            }
+            if (year >= 0 && month >= 0 && day >= 0 && hour >= 0 && minute >= 0 && second >= 0 && nano >= 0) {
+                return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+            }
+        }
+
+        // Anything unusual goes through the regular parser, which reports the error
+        return LocalDateTime.parse(CharBuffer.wrap(buffer, start, length));
+    }
+
+    public boolean fieldEquals(int field, String value) {
+        checkField(field);
+        int start = fieldStart[field];
+        int length = trimEnd(field) - start;
+        if (length != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer[start + i] != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * CRC32C of the first {@code fields} fields joined with commas, quotes excluded. Matches
+     * {@link SessionLog}'s checksum of the values it wrote.
+     */
+    public long checksum(int fields) {
+        crc.reset();
+        for (int field = 0; field < fields; field++) {
+            checkField(field);
+            if (field > 0) {
+                crc.update(',');
+            }
+            int length = fieldEnd[field] - fieldStart[field];
+            if (scratch.length < length) {
+                scratch = new byte[length * 2];
+            }
+            for (int i = 0; i < length; i++) {
+                scratch[i] = (byte) buffer[fieldStart[field] + i];
+            }
+            crc.update(scratch, 0, length);
+        }
+        return crc.getValue();
+    }
+
+    public String getString(int field) {
+        checkField(field);
+        return new String(buffer, fieldStart[field], trimEnd(field) - fieldStart[field]);
+    }
+
+    // The known modes come back as constants so loading a history does not create a string per row
+    private String getGameMode(int field) {
+        if (fieldEquals(field, "Normal")) return "Normal";
+        if (fieldEquals(field, "Timed")) return "Timed";
+        return getString(field);
+    }
+
+    /**
+     * Builds a session from the current row, in the column order written by {@link SessionData#toCsvRow()}.
+     * Rows without a game mode are treated as Normal games. The checksum, if any, is not checked here.
+     */
+    public SessionData toSessionData() {
+        return SessionData.builder()
+                .id(getLong(0))
+                .score(getLong(1))
+                .length(getInt(2))
+                .foodEaten(getInt(3))
+                .timeSpentMillis(getLong(4))
+                .moves(getInt(5))
+                .date(getDateTime(6))
+                .gameMode(getValueCount() > GAME_MODE_FIELD ? getGameMode(GAME_MODE_FIELD) : "Normal") // rows before modes were recorded
+                .build();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    // Returns the index of the next '\n' (or the end of the last line), refilling the buffer as needed
+    private int findLineEnd() throws IOException {
+        int scanFrom = position;
+        while (true) {
+            for (int i = scanFrom; i < limit; i++) {
+                if (buffer[i] == '\n') {
+                    return i;
+                }
+            }
+            if (eof) {
+                if (position < limit) {
+                    // Last line without a trailing newline: pretend there is one
+                    ensureSpace();
+                    buffer[limit] = '\n';
+                    return limit++;
+                }
+                return -1;
+            }
+            scanFrom = limit - position;
+            fill();
+            scanFrom += position;
+        }
+    }
+
+    // Moves the unread data to the front of the buffer and reads more after it
+    private void fill() throws IOException {
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        ensureSpace();
+
+        int read = reader.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            eof = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    // Grows the buffer when a single row does not fit
+    private void ensureSpace() {
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+    }
+
+    private void splitFields(int start, int end) {
+        fieldCount = 0;
+        int i = start;
+        while (i <= end && fieldCount < MAX_FIELDS) {
+            if (i < end && buffer[i] == '"') {
+                int close = i + 1;
+                while (close < end && buffer[close] != '"') close++;
+                fieldStart[fieldCount] = i + 1;
+                fieldEnd[fieldCount] = close;
+                i = close + 1;
+                while (i < end && buffer[i] != ',') i++;
+            } else {
+                int comma = i;
+                while (comma < end && buffer[comma] != ',') comma++;
+                fieldStart[fieldCount] = i;
+                fieldEnd[fieldCount] = comma;
+                i = comma;
+            }
+            fieldCount++;
+            i++; // Skip the comma
+        }
+    }
+
+    private int trimEnd(int field) {
+        int end = fieldEnd[field];
+        while (end > fieldStart[field] && buffer[end - 1] == ' ') end--;
+        return end;
+    }
+
+    // Parses a fixed number of digits, or returns -1 if any of them is not a digit
+    private int digits(int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private boolean isDigits(int field) {
+        int start = fieldStart[field];
+        int end = trimEnd(field);
+        if (start == end) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (buffer[i] < '0' || buffer[i] > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void checkField(int field) {
+        if (field >= fieldCount) {
+            throw new ArrayIndexOutOfBoundsException("Row " + rowNumber + " has no field " + field);
+        }
+    }
+}
@@ -0,0 +1,597 @@
+package org.example.service;
+
+import com.opencsv.CSVWriter;
+import lombok.extern.log4j.Log4j2;
+import org.example.model.SessionData;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+
+/**
+ * The session history on disk: an append-only sequence of CSV segment files
+ * ({@code sessions-00000000.csv}, {@code sessions-00000001.csv}, ...). The last segment is the
+ * active one; it is rolled over once it passes {@value #SEGMENT_BYTES} bytes.
+ * <p>
+ * Every row ends with a CRC32C of its values, so a damaged row is detected and skipped instead of
+ * being loaded. A history file from an older version, or an exported one, has no checksums; it is
+ * rewritten with them when it is taken over as the first segment.
+ * <p>
+ * A reset does not rewrite anything: it appends an epoch marker row, and loading discards every
+ * session before the last marker. The dead data is removed afterwards by compaction, which deletes
+ * whole segments and rewrites at most one through a temp file that is atomically renamed over it,
+ * so a crash at any point leaves either the old or the new file.
+ * <p>
+ * A crash during an append can only damage the end of the active segment. Opening the log reads
+ * the last {@value #TAIL_WINDOW} bytes and trims a torn or corrupt last row, so recovery time does
+ * not depend on the size of the history.
+ */
+@Log4j2
+public class SessionLog implements Closeable {
+    static final String[] HEADERS = {"Id", "Score", "Snake-Length", "Food-Eaten", "Time-Spent", "Moves", "Date", "Game-Mode", "Crc"};
+    private static final String EPOCH_MARKER = "#epoch";
+    private static final int LEGACY_SESSION_FIELDS = 7; // rows from before game modes
+    private static final int SESSION_FIELDS = 8;
+    private static final int EPOCH_FIELDS = 2;
+
+    private static final long SEGMENT_BYTES = 64L * 1024 * 1024;
+    private static final int TAIL_WINDOW = 4096;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("sessions-(\\d{8})\\.csv");
+
+    private final Path directory;
+    private final Path legacyFile;  // single-file history from older versions, copied in as segment 0
+
+    // Guarded by this
+    private final List<Path> segments = new ArrayList<>(); // oldest first
+    private final Object loadLock = new Object(); // taken before this, by load only
+    private boolean opened;
+    private FileOutputStream output;
+    private CSVWriter writer;
+    private long nextId;
+
+    public SessionLog(Path directory, Path legacyFile) {
+        this.directory = directory;
+        this.legacyFile = legacyFile;
+    }
+
+    /**
+     * Appends the sessions, assigning their IDs, then flushes once and optionally forces the
+     * segment to disk. If the write fails, the segment is cut back to where it was and the IDs are
+     * handed out again by the next append, so the same sessions can simply be retried.
+     */
+    public synchronized void append(List<SessionData> sessions, boolean sync) throws IOException {
+        openForAppend();
+        long start = output.getChannel().size();
+        long firstId = nextId;
+        try {
+            for (SessionData data : sessions) {
+                data.setId(nextId++);
+                writer.writeNext(withChecksum(data.toCsvRow()));
+            }
+            writer.flush();
+            if (sync) {
+                output.getChannel().force(false);
+            }
+        } catch (IOException e) {
+            rollBack(start, firstId, e);
+            throw e;
+        }
+
+        if (output.getChannel().size() >= SEGMENT_BYTES) {
+            rollSegment();
+        }
+    }
+
+    /**
+     * Starts a new, empty history by appending an epoch marker. Session IDs restart at 0.
+     */
+    public synchronized void reset() throws IOException {
+        openForAppend();
+        long start = output.getChannel().size();
+        try {
+            writer.writeNext(withChecksum(new String[]{EPOCH_MARKER, LocalDateTime.now().toString()}));
+            writer.flush();
+            output.getChannel().force(false);
+        } catch (IOException e) {
+            rollBack(start, nextId, e);
+            throw e;
+        }
+        nextId = 0;
+        log.info("Session history reset with an epoch marker in '{}'", segments.getLast());
+    }
+
+    /**
+     * The ID the next appended session will get. Opening the log only reads segment tails.
+     */
+    public synchronized long getNextId() throws IOException {
+        open();
+        return nextId;
+    }
+
+    public synchronized void sync() throws IOException {
+        if (writer != null) {
+            writer.flush();
+            output.getChannel().force(false);
+        }
+    }
+
+    /**
+     * The end of the log as it is now: its segments and the length of the active one. Everything
+     * appended so far lies before it, everything appended later after it.
+     */
+    public record End(List<Path> segments, long activeLength) {
+    }
+
+    public synchronized End markEnd() throws IOException {
+        open();
+        if (writer != null) {
+            writer.flush();
+        }
+        Path active = segments.getLast();
+        return new End(List.copyOf(segments), Files.exists(active) ? Files.size(active) : 0);
+    }
+
+    /**
+     * Streams every valid session since the last reset. {@code onEpoch} is called at each epoch
+     * marker, meaning everything passed to {@code onSession} so far has been reset. Once loaded,
+     * the history before the last marker is compacted away.
+     */
+    public void load(Consumer<SessionData> onSession, Runnable onEpoch) throws IOException {
+        load(markEnd(), onSession, onEpoch);
+    }
+
+    /**
+     * Streams every valid session since the last reset up to {@code end}, like
+     * {@link #load(Consumer, Runnable)}. The log is not locked while the rows are read, so appends
+     * carry on meanwhile (after {@code end}); only the compaction at the end takes the lock. Loads
+     * run one at a time.
+     */
+    public void load(End end, Consumer<SessionData> onSession, Runnable onEpoch) throws IOException {
+        synchronized (loadLock) {
+            Path epochSegment = null;
+            long epochRow = 0;
+            List<Path> toRead = end.segments();
+            for (int s = 0; s < toRead.size(); s++) {
+                Path segment = toRead.get(s);
+                boolean active = s == toRead.size() - 1;
+                if (active && !Files.exists(segment)) {
+                    continue;
+                }
+                long length = active ? end.activeLength() : Long.MAX_VALUE;
+                long row = readSegment(segment, length, onSession, onEpoch);
+                if (row > 0) {
+                    epochSegment = segment;
+                    epochRow = row;
+                }
+            }
+
+            if (epochSegment != null) {
+                synchronized (this) {
+                    compact(epochSegment, epochRow);
+                }
+            }
+        }
+    }
+
+    /**
+     * Streams the rows of a segment, or of any session CSV file, up to the given length. Rows of the
+     * wrong shape or with a bad checksum are logged and skipped, and {@code onEpoch} is called at
+     * each epoch marker. Returns the row of the last marker, or 0 if there is none.
+     */
+    static long readSegment(Path segment, long length, Consumer<SessionData> onSession, Runnable onEpoch)
+            throws IOException {
+        long epochRow = 0;
+        try (SessionCsvParser parser = new SessionCsvParser(openPrefix(segment, length))) {
+            if (!parser.readHeader()) {
+                return 0;
+            }
+
+            while (parser.next()) {
+                if (!isValidRow(parser)) {
+                    log.error("Skipping corrupt row {} of '{}'", parser.getRowNumber(), segment);
+                    continue;
+                }
+                if (parser.fieldEquals(0, EPOCH_MARKER)) {
+                    onEpoch.run();
+                    epochRow = parser.getRowNumber();
+                    continue;
+                }
+
+                try {
+                    onSession.accept(parser.toSessionData());
+                } catch (NumberFormatException | ArithmeticException | ArrayIndexOutOfBoundsException
+                         | DateTimeException ex) {
+                    // Log individual row parsing errors without stopping the process
+                    log.error("Error parsing row {} of '{}'", parser.getRowNumber(), segment, ex);
+                }
+            }
+        }
+        return epochRow;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+            output = null;
+        }
+    }
+
+    // Finds the segments, adopts a legacy file, repairs the tail and opens the active segment
+    private void open() throws IOException {
+        if (opened) {
+            return;
+        }
+        Files.createDirectories(directory);
+
+        List<Path> found = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    // Left behind by an interrupted compaction; the original segment is intact
+                    Files.delete(path);
+                } else if (SEGMENT_NAME.matcher(name).matches()) {
+                    found.add(path);
+                }
+            }
+        }
+        found.sort((a, b) -> Long.compare(segmentNumber(a), segmentNumber(b)));
+
+        if (found.isEmpty() && Files.exists(legacyFile)) {
+            Path adopted = directory.resolve(segmentName(0));
+            adoptLegacyFile(adopted);
+            found.add(adopted);
+        }
+        if (found.isEmpty()) {
+            found.add(directory.resolve(segmentName(0)));
+        }
+        segments.addAll(found);
+
+        trimTail(segments.getLast());
+        nextId = recoverNextId();
+        openWriter(segments.getLast());
+        opened = true;
+        log.info("Opened session log '{}' ({} segment(s), next ID {})", directory, segments.size(), nextId);
+    }
+
+    /**
+     * Rewrites the legacy history into the given segment with a checksum on every row. The old file
+     * is left alone so it stays usable by older versions.
+     */
+    private void adoptLegacyFile(Path segment) throws IOException {
+        Path temp = directory.resolve(segment.getFileName() + ".tmp");
+        long rows = 0;
+        try (SessionCsvParser parser = new SessionCsvParser(Files.newBufferedReader(legacyFile, StandardCharsets.UTF_8));
+             CSVWriter out = new CSVWriter(Files.newBufferedWriter(temp, StandardCharsets.UTF_8))) {
+            out.writeNext(HEADERS);
+            if (parser.readHeader()) {
+                while (parser.next()) {
+                    if (!isValidRow(parser)) {
+                        log.error("Skipping corrupt row {} of '{}'", parser.getRowNumber(), legacyFile);
+                    } else if (parser.fieldEquals(0, EPOCH_MARKER)) {
+                        out.writeNext(withChecksum(new String[]{EPOCH_MARKER, parser.getString(1)}));
+                    } else {
+                        try {
+                            out.writeNext(withChecksum(parser.toSessionData().toCsvRow()));
+                            rows++;
+                        } catch (NumberFormatException | ArithmeticException | DateTimeException ex) {
+                            log.error("Error parsing row {} of '{}'", parser.getRowNumber(), legacyFile, ex);
+                        }
+                    }
+                }
+            }
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, segment, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Copied {} session(s) from '{}' to '{}'", rows, legacyFile, segment);
+    }
+
+    /**
+     * Cuts a torn or corrupt last row off the segment. Only the last {@value #TAIL_WINDOW} bytes
+     * are read.
+     */
+    private void trimTail(Path segment) throws IOException {
+        if (!Files.exists(segment)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            int window = (int) Math.min(size, TAIL_WINDOW);
+            long windowStart = size - window;
+            byte[] tail = readFully(channel, windowStart, window);
+            boolean checksummed = hasChecksumColumn(segment);
+
+            // Keep whole lines only
+            int end = window;
+            while (end > 0 && tail[end - 1] != '\n') end--;
+            if (end == 0 && windowStart > 0) {
+                log.error("Cannot find a complete row in the last {} bytes of '{}'; leaving it as is", window, segment);
+                return;
+            }
+
+            // The last complete row (not the header) must pass its checksum
+            if (end > 0) {
+                int lineStart = end - 1;
+                while (lineStart > 0 && tail[lineStart - 1] != '\n') lineStart--;
+                if (windowStart + lineStart > 0 && !isValidLine(tail, lineStart, end, checksummed)) {
+                    end = lineStart;
+                }
+            }
+
+            long validSize = windowStart + end;
+            if (validSize < size) {
+                log.warn("Trimming {} damaged byte(s) from the end of '{}'", size - validSize, segment);
+                channel.truncate(validSize);
+                channel.force(true);
+            }
+        }
+    }
+
+    /**
+     * Continues the ID sequence from the last session, or from 0 after a reset. Reads only segment
+     * tails, walking back over segments that hold nothing but a header.
+     */
+    private long recoverNextId() throws IOException {
+        for (int s = segments.size() - 1; s >= 0; s--) {
+            Path segment = segments.get(s);
+            if (!Files.exists(segment)) {
+                continue;
+            }
+
+            byte[] tail;
+            long windowStart;
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                int window = (int) Math.min(channel.size(), TAIL_WINDOW);
+                windowStart = channel.size() - window;
+                tail = readFully(channel, windowStart, window);
+            }
+
+            // Skip a partial first line when the window starts mid-file
+            int from = 0;
+            if (windowStart > 0) {
+                while (from < tail.length && tail[from] != '\n') from++;
+                from++;
+            }
+
+            Long lastId = null;
+            boolean reset = false;
+            try (SessionCsvParser parser = parserFor(tail, from, tail.length)) {
+                parser.setChecksummed(hasChecksumColumn(segment));
+                while (parser.next()) {
+                    if (!isValidRow(parser)) {
+                        continue;
+                    }
+                    if (parser.fieldEquals(0, EPOCH_MARKER)) {
+                        reset = true;
+                        lastId = null;
+                        continue;
+                    }
+                    try {
+                        lastId = parser.getLong(0);
+                        reset = false;
+                    } catch (NumberFormatException e) {
+                        // Header row
+                    }
+                }
+            }
+
+            if (lastId != null) {
+                return lastId + 1;
+            }
+            if (reset) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Drops everything before the epoch marker at the given row: segments before it are deleted,
+     * and its own segment is rewritten from the marker on if anything precedes it.
+     */
+    private void compact(Path epochSegment, long epochRow) throws IOException {
+        if (!segments.contains(epochSegment)) {
+            return; // already compacted away
+        }
+        while (!segments.getFirst().equals(epochSegment)) {
+            Files.deleteIfExists(segments.getFirst());
+            log.info("Deleted compacted segment '{}'", segments.getFirst());
+            segments.removeFirst();
+        }
+
+        if (epochRow <= 2) {
+            return; // Marker already follows the header
+        }
+
+        Path segment = segments.getFirst();
+        boolean active = segments.size() == 1;
+        if (active) {
+            close();
+        }
+
+        Path temp = directory.resolve(segment.getFileName() + ".tmp");
+        try (BufferedReader in = Files.newBufferedReader(segment, StandardCharsets.UTF_8);
+             BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            String line = in.readLine();
+            long row = 1;
+            while (line != null) {
+                if (row == 1 || row >= epochRow) {
+                    out.write(line);
+                    out.write('\n');
+                }
+                line = in.readLine();
+                row++;
+            }
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, segment, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        log.info("Compacted '{}', dropping {} row(s) before the last reset", segment, epochRow - 2);
+
+        if (active) {
+            openWriter(segment);
+        }
+    }
+
+    // Opens the log and, if it was closed (by close() or a failed write), the active segment's writer
+    private void openForAppend() throws IOException {
+        open();
+        if (writer == null) {
+            openWriter(segments.getLast());
+        }
+    }
+
+    // Drops whatever a failed append or reset left in the active segment; the writer reopens on the next write
+    private void rollBack(long size, long firstId, IOException failure) {
+        nextId = firstId;
+        try {
+            close();
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+        try (FileChannel channel = FileChannel.open(segments.getLast(), StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        } catch (IOException e) {
+            failure.addSuppressed(e); // a torn row is trimmed when the log is next opened
+        }
+    }
+
+    private void rollSegment() throws IOException {
+        close();
+        Path next = directory.resolve(segmentName(segmentNumber(segments.getLast()) + 1));
+        segments.add(next);
+        openWriter(next);
+        log.info("Started new session log segment '{}'", next);
+    }
+
+    private void openWriter(Path segment) throws IOException {
+        boolean empty = !Files.exists(segment) || Files.size(segment) == 0;
+        output = new FileOutputStream(segment.toFile(), true);
+        writer = new CSVWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        if (empty) {
+            writer.writeNext(HEADERS);
+            writer.flush();
+        }
+    }
+
+    // Appends the CRC32C of the values joined with commas, the same bytes SessionCsvParser checks
+    private static String[] withChecksum(String[] values) {
+        CRC32C crc = new CRC32C();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                crc.update(',');
+            }
+            crc.update(values[i].getBytes(StandardCharsets.UTF_8));
+        }
+        String[] row = new String[values.length + 1];
+        System.arraycopy(values, 0, row, 0, values.length);
+        row[values.length] = Long.toString(crc.getValue());
+        return row;
+    }
+
+    // Sessions with or without a game mode, and epoch markers (which are always checksummed)
+    private static boolean isValidRow(SessionCsvParser parser) {
+        int values = parser.getValueCount();
+        boolean shape = parser.fieldEquals(0, EPOCH_MARKER)
+                ? values == EPOCH_FIELDS && parser.hasChecksum()
+                : values == LEGACY_SESSION_FIELDS || values == SESSION_FIELDS;
+        return shape && parser.hasValidChecksum();
+    }
+
+    private static boolean isValidLine(byte[] bytes, int start, int end, boolean checksummed) throws IOException {
+        try (SessionCsvParser parser = parserFor(bytes, start, end)) {
+            parser.setChecksummed(checksummed);
+            return parser.next() && isValidRow(parser);
+        }
+    }
+
+    // Reads the segment's header: segments this log created have a checksum column
+    private static boolean hasChecksumColumn(Path segment) throws IOException {
+        try (SessionCsvParser parser = new SessionCsvParser(Files.newBufferedReader(segment, StandardCharsets.UTF_8))) {
+            return parser.readHeader() && parser.isChecksummed();
+        }
+    }
+
+    // Reads the file only up to the given length, so rows appended after it are left out
+    private static Reader openPrefix(Path file, long length) throws IOException {
+        return new InputStreamReader(new FilterInputStream(Files.newInputStream(file)) {
+            private long remaining = length;
+
+            @Override
+            public int read() throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int b = super.read();
+                if (b >= 0) {
+                    remaining--;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int count) throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int read = super.read(bytes, offset, (int) Math.min(count, remaining));
+                if (read > 0) {
+                    remaining -= read;
+                }
+                return read;
+            }
+        }, StandardCharsets.UTF_8);
+    }
+
+    private static SessionCsvParser parserFor(byte[] bytes, int start, int end) {
+        return new SessionCsvParser(new InputStreamReader(
+                new ByteArrayInputStream(bytes, start, Math.max(0, end - start)), StandardCharsets.UTF_8));
+    }
+
+    private static byte[] readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+        return buffer.array();
+    }
+
+    private static String segmentName(long number) {
+        return String.format("sessions-%08d.csv", number);
+    }
+
+    private static long segmentNumber(Path segment) {
+        Matcher matcher = SEGMENT_NAME.matcher(segment.getFileName().toString());
+        return matcher.matches() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+}
@@ -0,0 +1,155 @@
+package org.example.service;
+
+import lombok.Getter;
+import org.example.model.SessionData;
+import org.example.model.UserAnalytics;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * In-memory history of game sessions together with the analytics computed from it.
+ * <p>
+ * Writes are serialized on an internal lock, so there is only ever one writer. Each write ends by
+ * publishing a new immutable {@link Snapshot} through an {@link AtomicReference}; readers just read
+ * that reference, so they never block and always see sessions and analytics that belong together.
+ * <p>
+ * Sessions live in fixed-size chunks that are only ever appended to. A snapshot shares the chunks
+ * and remembers how many sessions it covers, so publishing one costs a small object, not a copy of
+ * the history.
+ * <p>
+ * The running analytics can be saved and restored on their own ({@link #writeAnalytics},
+ * {@link #restoreAnalytics}). A repository restored that way holds the analytics for the whole
+ * history but only the sessions added to it since.
+ */
+public class SessionRepository {
+    private static final int CHUNK_SHIFT = 14; // 16,384 sessions per chunk
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    private final Object writeLock = new Object();
+    private final AtomicReference<Snapshot> current = new AtomicReference<>(Snapshot.EMPTY);
+    @Getter
+    private volatile RollupIndex rollups = new RollupIndex(); // time-window totals, kept in step with the sessions
+
+    // Writer state, guarded by writeLock
+    private SessionData[][] chunks = new SessionData[16][];
+    private int size;
+    private AnalyticsAggregator aggregator = new AnalyticsAggregator();
+
+    /**
+     * Returns the latest published state. Never blocks.
+     */
+    public Snapshot snapshot() {
+        return current.get();
+    }
+
+    public UserAnalytics getAnalytics() {
+        return current.get().getAnalytics();
+    }
+
+    public void add(SessionData data) {
+        addAll(List.of(data));
+    }
+
+    /**
+     * Appends the sessions and publishes one snapshot covering all of them.
+     */
+    public void addAll(List<SessionData> sessions) {
+        if (sessions.isEmpty()) {
+            return;
+        }
+        synchronized (writeLock) {
+            for (SessionData data : sessions) {
+                int chunkIndex = size >>> CHUNK_SHIFT;
+                if (chunkIndex == chunks.length) {
+                    chunks = Arrays.copyOf(chunks, chunks.length * 2);
+                }
+                if (chunks[chunkIndex] == null) {
+                    chunks[chunkIndex] = new SessionData[CHUNK_SIZE];
+                }
+                chunks[chunkIndex][size & (CHUNK_SIZE - 1)] = data;
+                size++;
+                aggregator.add(data);
+                rollups.add(data);
+            }
+            current.set(new Snapshot(chunks, size, aggregator.toAnalytics()));
+        }
+    }
+
+    /**
+     * Writes the running analytics and rollups, but not the sessions.
+     */
+    public void writeAnalytics(DataOutput out) throws IOException {
+        synchronized (writeLock) {
+            aggregator.writeTo(out);
+            rollups.writeTo(out);
+        }
+    }
+
+    /**
+     * Replaces the running analytics and rollups with ones saved by {@link #writeAnalytics} and
+     * publishes them. Meant for a repository that has no sessions yet.
+     */
+    public void restoreAnalytics(DataInput in) throws IOException {
+        AnalyticsAggregator restored = AnalyticsAggregator.readFrom(in);
+        RollupIndex restoredRollups = RollupIndex.readFrom(in);
+        synchronized (writeLock) {
+            aggregator = restored;
+            rollups = restoredRollups;
+            current.set(new Snapshot(chunks, size, aggregator.toAnalytics()));
+        }
+    }
+
+    /**
+     * Forgets every session. Snapshots taken earlier keep their own view of the old history.
+     */
+    public void clear() {
+        synchronized (writeLock) {
+            chunks = new SessionData[16][];
+            size = 0;
+            aggregator = new AnalyticsAggregator();
+            rollups.clear();
+            current.set(Snapshot.EMPTY);
+        }
+    }
+
+    /**
+     * An immutable view of the first {@link #size()} sessions and their analytics.
+     */
+    public static final class Snapshot {
+        private static final Snapshot EMPTY = new Snapshot(new SessionData[0][], 0, UserAnalytics.EMPTY);
+
+        private final SessionData[][] chunks;
+        private final int size;
+        @Getter
+        private final UserAnalytics analytics;
+
+        private Snapshot(SessionData[][] chunks, int size, UserAnalytics analytics) {
+            this.chunks = chunks;
+            this.size = size;
+            this.analytics = analytics;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public SessionData get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+            }
+            return chunks[index >>> CHUNK_SHIFT][index & (CHUNK_SIZE - 1)];
+        }
+
+        public void forEach(Consumer<SessionData> action) {
+            for (int i = 0; i < size; i++) {
+                action.accept(chunks[i >>> CHUNK_SHIFT][i & (CHUNK_SIZE - 1)]);
+            }
+        }
+    }
+}
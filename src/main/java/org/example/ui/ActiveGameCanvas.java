@@ -0,0 +1,65 @@
+package org.example.ui;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.awt.*;
+import java.awt.image.BufferStrategy;
+import java.util.function.Consumer;
+
+/**
+ * Heavyweight canvas for the active rendering path. Frames are drawn straight into a
+ * {@link BufferStrategy} (accelerated volatile back buffers) from the game loop thread and
+ * flipped with {@link BufferStrategy#show()}, instead of going through Swing's repaint queue.
+ */
+@Log4j2
+public class ActiveGameCanvas extends Canvas {
+    private final Consumer<Graphics> painter;
+    private BufferStrategy strategy;
+
+    public ActiveGameCanvas(Consumer<Graphics> painter) {
+        this.painter = painter;
+        setIgnoreRepaint(true);
+        setBackground(Color.BLACK);
+    }
+
+    @Override
+    public synchronized void addNotify() {
+        super.addNotify();
+        createBufferStrategy(2);
+        strategy = getBufferStrategy();
+    }
+
+    @Override
+    public synchronized void removeNotify() {
+        strategy = null;
+        super.removeNotify();
+    }
+
+    /**
+     * Draws one complete frame and shows it. Does nothing while the canvas is not on screen.
+     */
+    public synchronized void renderFrame() {
+        if (strategy == null) {
+            return;
+        }
+
+        try {
+            // Redraw until the back buffer survives both drawing and showing
+            do {
+                do {
+                    Graphics g = strategy.getDrawGraphics();
+                    try {
+                        painter.accept(g);
+                    } finally {
+                        g.dispose();
+                    }
+                } while (strategy.contentsRestored());
+                strategy.show();
+            } while (strategy.contentsLost());
+        } catch (IllegalStateException e) {
+            // The peer went away between frames (e.g. the canvas is being removed)
+            log.warn("Skipped an active frame: {}", e.getMessage());
+        }
+        Toolkit.getDefaultToolkit().sync();
+    }
+}
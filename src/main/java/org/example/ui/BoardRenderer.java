@@ -0,0 +1,154 @@
+package org.example.ui;
+
+import org.example.engine.SnakeEngine;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Keeps the visible part of the board (food and snake body) in an offscreen image and only redraws
+ * the cells the engine reports as changed. Painting a frame is then a blit of the clipped region plus
+ * the head, no matter how long the snake is. All methods must be called while holding the engine lock.
+ * <p>
+ * The image covers a viewport of the board whose top-left cell is the camera position. Cells outside
+ * it are never drawn, and when the camera scrolls the image is shifted and only the newly exposed
+ * rows and columns are drawn, so boards far larger than the window cost the same per frame.
+ * <p>
+ * Tiles are pre-rendered once into small sprites, so drawing a cell is a single image copy.
+ */
+public class BoardRenderer {
+    private final int blockSize;
+    private final int viewColumns;
+    private final int viewRows;
+    private final BufferedImage board;
+    private final Graphics2D boardGraphics;
+    private int drawnHead = -1;  // head cell at the last update, still blank in the board image
+    private int drawnCameraX;
+    private int drawnCameraY;
+
+    // Pre-rendered tiles
+    private final BufferedImage snakeSprite;
+    private final BufferedImage foodSprite;
+
+    public BoardRenderer(int blockSize, int panelWidth, int panelHeight) {
+        this.blockSize = blockSize;
+        this.viewColumns = panelWidth / blockSize;
+        this.viewRows = panelHeight / blockSize;
+        this.board = new BufferedImage(panelWidth, panelHeight, BufferedImage.TYPE_INT_RGB);
+        this.boardGraphics = board.createGraphics();
+        this.snakeSprite = createSprite(Color.GREEN);
+        this.foodSprite = createSprite(Color.RED);
+    }
+
+    /**
+     * Brings the offscreen board up to date with the engine for the given camera position and
+     * clears the engine's dirty cells. The head is left out of the board image; it is drawn on top
+     * with {@link #drawHead}.
+     */
+    public void update(SnakeEngine engine, int cameraX, int cameraY) {
+        int shiftX = cameraX - drawnCameraX;
+        int shiftY = cameraY - drawnCameraY;
+
+        if (engine.isFullRedraw() || Math.abs(shiftX) >= viewColumns || Math.abs(shiftY) >= viewRows) {
+            drawnCameraX = cameraX;
+            drawnCameraY = cameraY;
+            drawRegion(engine, 0, 0, viewColumns, viewRows);
+        } else {
+            if (shiftX != 0 || shiftY != 0) {
+                scroll(engine, shiftX, shiftY);
+            }
+            for (int i = 0; i < engine.getDirtyCount(); i++) {
+                drawCell(engine, engine.getDirtyCell(i));
+            }
+            // The head we left blank last time has most likely become a body segment since
+            if (drawnHead >= 0) {
+                drawCell(engine, drawnHead);
+            }
+        }
+        engine.clearDirty();
+        drawnHead = engine.getHeadCell();
+    }
+
+    // Copies the board image; Java2D only transfers the part inside the clip
+    public void drawBoard(Graphics g) {
+        g.drawImage(board, 0, 0, null);
+    }
+
+    /**
+     * Draws the head between its previous and current cell, {@code alpha} of the way along.
+     */
+    public void drawHead(Graphics g, SnakeEngine engine, double alpha) {
+        int head = engine.getHeadCell();
+        int previousHead = engine.getPreviousHeadCell();
+        double x = engine.cellX(previousHead) + (engine.cellX(head) - engine.cellX(previousHead)) * alpha;
+        double y = engine.cellY(previousHead) + (engine.cellY(head) - engine.cellY(previousHead)) * alpha;
+        int headX = (int) Math.round((x - drawnCameraX) * blockSize);
+        int headY = (int) Math.round((y - drawnCameraY) * blockSize);
+        g.drawImage(snakeSprite, headX, headY, null);
+    }
+
+    // Moves the existing pixels by the camera shift and draws only the strips that scrolled into view
+    private void scroll(SnakeEngine engine, int shiftX, int shiftY) {
+        boardGraphics.copyArea(0, 0, board.getWidth(), board.getHeight(), -shiftX * blockSize, -shiftY * blockSize);
+        drawnCameraX += shiftX;
+        drawnCameraY += shiftY;
+
+        if (shiftX > 0) {
+            drawRegion(engine, viewColumns - shiftX, 0, viewColumns, viewRows);
+        } else if (shiftX < 0) {
+            drawRegion(engine, 0, 0, -shiftX, viewRows);
+        }
+        if (shiftY > 0) {
+            drawRegion(engine, 0, viewRows - shiftY, viewColumns, viewRows);
+        } else if (shiftY < 0) {
+            drawRegion(engine, 0, 0, viewColumns, -shiftY);
+        }
+    }
+
+    // Redraws the view cells in [fromColumn, toColumn) x [fromRow, toRow)
+    private void drawRegion(SnakeEngine engine, int fromColumn, int fromRow, int toColumn, int toRow) {
+        for (int row = fromRow; row < toRow; row++) {
+            for (int column = fromColumn; column < toColumn; column++) {
+                int x = drawnCameraX + column;
+                int y = drawnCameraY + row;
+                if (x < engine.getGridWidth() && y < engine.getGridHeight()) {
+                    drawCell(engine, engine.toCell(x, y));
+                } else {
+                    clearTile(column * blockSize, row * blockSize);
+                }
+            }
+        }
+    }
+
+    private void drawCell(SnakeEngine engine, int cell) {
+        int column = engine.cellX(cell) - drawnCameraX;
+        int row = engine.cellY(cell) - drawnCameraY;
+        if (column < 0 || column >= viewColumns || row < 0 || row >= viewRows) {
+            return; // Off screen
+        }
+
+        int x = column * blockSize;
+        int y = row * blockSize;
+        if (cell == engine.getFoodCell() && !engine.isOccupied(cell)) {
+            boardGraphics.drawImage(foodSprite, x, y, null);
+        } else if (engine.isOccupied(cell) && cell != engine.getHeadCell()) {
+            boardGraphics.drawImage(snakeSprite, x, y, null);
+        } else {
+            clearTile(x, y);
+        }
+    }
+
+    private void clearTile(int x, int y) {
+        boardGraphics.setColor(Color.BLACK);
+        boardGraphics.fillRect(x, y, blockSize, blockSize);
+    }
+
+    private BufferedImage createSprite(Color color) {
+        BufferedImage sprite = new BufferedImage(blockSize, blockSize, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = sprite.createGraphics();
+        g.setColor(color);
+        g.fill3DRect(0, 0, blockSize, blockSize, true);
+        g.dispose();
+        return sprite;
+    }
+}
@@ -0,0 +1,60 @@
+package org.example.ui;
+
+import java.awt.*;
+
+/**
+ * Reusable character buffer for HUD lines. Text and numbers are copied straight into the buffer
+ * and drawn with {@link Graphics#drawChars}, so building "Score: 12" every frame creates no
+ * strings or formatters.
+ */
+public class HudText {
+    private final char[] chars;
+    private int length;
+
+    public HudText(int capacity) {
+        chars = new char[capacity];
+    }
+
+    public HudText clear() {
+        length = 0;
+        return this;
+    }
+
+    public HudText append(String text) {
+        text.getChars(0, text.length(), chars, length);
+        length += text.length();
+        return this;
+    }
+
+    public HudText append(int value) {
+        if (value < 0) {
+            chars[length++] = '-';
+            value = -value;
+        }
+
+        // Write the digits backwards, then reverse them in place
+        int start = length;
+        do {
+            chars[length++] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        for (int i = start, j = length - 1; i < j; i++, j--) {
+            char c = chars[i];
+            chars[i] = chars[j];
+            chars[j] = c;
+        }
+        return this;
+    }
+
+    // Zero-padded to two digits, like %02d
+    public HudText appendTwoDigits(int value) {
+        if (value < 10) {
+            chars[length++] = '0';
+        }
+        return append(value);
+    }
+
+    public void draw(Graphics g, int x, int y) {
+        g.drawChars(chars, 0, length, x, y);
+    }
+}
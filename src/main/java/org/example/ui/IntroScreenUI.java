@@ -1,9 +1,14 @@
 package org.example.ui;
 
+import org.example.engine.SnakeEngine;
+
 import javax.swing.*;
 import java.awt.*;
 
 public class IntroScreenUI extends JPanel{
+    private static final int BLOCK_SIZE = 25;
+    private static final String[] BOARD_SIZES = {"24 x 24", "100 x 100", "1000 x 1000", "10000 x 10000"};
+
     // Window dimensions
     int boardWidth = 600;
     int boardHeight = boardWidth;
@@ -26,6 +31,12 @@ public class IntroScreenUI extends JPanel{
         label.setOpaque(true);
         label.setAlignmentX(Component.CENTER_ALIGNMENT);
 
+        // Board size (cells per side); anything bigger than the window scrolls with the snake
+        JComboBox<String> boardSizeBox = new JComboBox<>(BOARD_SIZES);
+        boardSizeBox.setFont(new Font("Arial", Font.PLAIN, 14));
+        boardSizeBox.setAlignmentX(Component.CENTER_ALIGNMENT);
+        boardSizeBox.setMaximumSize(new Dimension(150, 25));
+
         // Start Game button
         JButton button = new JButton("Start Game");
         button.setFont(new Font("Arial", Font.BOLD, 15));
@@ -34,7 +45,7 @@ public class IntroScreenUI extends JPanel{
 
         // On click → gather settings and switch to game screen
         button.addActionListener(e -> {
-            switchToGame(frame, boardWidth, boardHeight, "Normal");}
+            switchToGame(frame, boardWidth, boardHeight, gridSize(boardSizeBox), "Normal", false);}
         );
 
         // Timed Mode
@@ -45,7 +56,16 @@ public class IntroScreenUI extends JPanel{
 
         // On click → gather settings and switch to game screen
         tmButton.addActionListener(e -> {
-            switchToGame(frame, boardWidth, boardHeight, "Timed");}
+            switchToGame(frame, boardWidth, boardHeight, gridSize(boardSizeBox), "Timed", false);}
+        );
+
+        // Autopilot: watch the computer play a normal game
+        JButton autopilotButton = new JButton("Autopilot");
+        autopilotButton.setFont(new Font("Arial", Font.BOLD, 15));
+        autopilotButton.setAlignmentX(Component.CENTER_ALIGNMENT);
+        autopilotButton.setMaximumSize(new Dimension(150, 25));
+        autopilotButton.addActionListener(e -> {
+            switchToGame(frame, boardWidth, boardHeight, gridSize(boardSizeBox), "Normal", true);}
         );
 
         // Stats Game button
@@ -57,18 +77,33 @@ public class IntroScreenUI extends JPanel{
         // On click → gather settings and switch to game screen
         statsButton.addActionListener(e -> {switchToStats(frame);});
 
+        // Leaderboard button
+        JButton leaderboardButton = new JButton("Leaderboard");
+        leaderboardButton.setFont(new Font("Arial", Font.BOLD, 15));
+        leaderboardButton.setAlignmentX(Component.CENTER_ALIGNMENT);
+        leaderboardButton.setMaximumSize(new Dimension(150, 25));
+        leaderboardButton.addActionListener(e -> {switchToLeaderboard(frame);});
+
         add(Box.createVerticalStrut(80));
         add(label);
-        add(Box.createVerticalStrut(60));
+        add(Box.createVerticalStrut(40));
+        add(boardSizeBox);
+        add(Box.createVerticalStrut(20));
         add(button);
         add(Box.createVerticalStrut(40));
         add(tmButton);
+        add(Box.createVerticalStrut(20));
+        add(autopilotButton);
         add(Box.createVerticalStrut(40));
         add(statsButton);
+        add(Box.createVerticalStrut(20));
+        add(leaderboardButton);
     }
 
-    private void switchToGame(JFrame frame, int boardWidth, int boardHeight, String gameMode) {
-        SnakeGameUI snakeGameUI = new SnakeGameUI(25, boardWidth, boardHeight, gameMode,  frame);
+    private void switchToGame(JFrame frame, int boardWidth, int boardHeight, int gridSize, String gameMode, boolean autopilot) {
+        // -Dsnake.activeRendering=true draws frames through a BufferStrategy instead of Swing repaints
+        SnakeGameUI snakeGameUI = new SnakeGameUI(BLOCK_SIZE, boardWidth, boardHeight, gridSize, gridSize, gameMode, frame,
+                SnakeEngine.DEFAULT_TICKS_PER_SECOND, Boolean.getBoolean("snake.activeRendering"), autopilot);
 
         frame.getContentPane().removeAll();
         frame.add(snakeGameUI);
@@ -78,6 +113,12 @@ public class IntroScreenUI extends JPanel{
         SwingUtilities.invokeLater(snakeGameUI::requestFocusInWindow);
     }
 
+    // Cells per side for the selected board size; the default fills the window exactly
+    private int gridSize(JComboBox<String> boardSizeBox) {
+        String selected = (String) boardSizeBox.getSelectedItem();
+        return selected == null ? boardWidth / BLOCK_SIZE : Integer.parseInt(selected.substring(0, selected.indexOf(' ')));
+    }
+
     private void switchToStats(JFrame frame) {
         UserStatsUI userStatsUI = new UserStatsUI(frame);
 
@@ -89,4 +130,13 @@ public class IntroScreenUI extends JPanel{
         SwingUtilities.invokeLater(userStatsUI::requestFocusInWindow);
     }
 
+    private void switchToLeaderboard(JFrame frame) {
+        LeaderboardUI leaderboardUI = new LeaderboardUI(frame);
+
+        frame.getContentPane().removeAll();
+        frame.add(leaderboardUI);
+        frame.revalidate();
+        frame.repaint();
+    }
+
 }
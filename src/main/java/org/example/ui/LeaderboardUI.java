@@ -0,0 +1,68 @@
+package org.example.ui;
+
+import org.example.service.FileService;
+import org.example.service.Leaderboard;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Shows the best sessions for each leaderboard metric and where the most recent game ranks.
+ * Everything comes from the leaderboard's ranked indexes, so it opens quickly however long the
+ * history is.
+ */
+public class LeaderboardUI extends JPanel {
+    private static final int TOP_COUNT = 3;
+
+    public LeaderboardUI(JFrame frame) {
+        Leaderboard leaderboard = FileService.getLeaderboard();
+
+        setLayout(new GridLayout(0, 1, 10, 10)); // one column, vertical spacing
+        setBackground(Color.DARK_GRAY);
+        setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+
+        // ===== HEADER =====
+        add(createLabel("Leaderboard", 22, Color.CYAN, SwingConstants.CENTER));
+
+        // ===== ONE SECTION PER METRIC =====
+        for (Leaderboard.Metric metric : Leaderboard.Metric.values()) {
+            add(createSectionLabel(metric.getLabel()));
+            for (Leaderboard.Entry entry : leaderboard.top(metric, TOP_COUNT)) {
+                add(createDataLabel("#" + entry.getRank() + "  " + metric.format(entry.getKey())
+                        + "  (game " + entry.getSessionId() + ")"));
+            }
+            Leaderboard.Entry lastGame = leaderboard.last(metric);
+            if (lastGame != null) {
+                add(createDataLabel(String.format("Last game: #%d, better than %.1f%% of games",
+                        lastGame.getRank(), leaderboard.percentileOf(metric, lastGame.getKey()))));
+            }
+        }
+
+        // ===== BACK BUTTON =====
+        JButton backButton = new JButton("Back");
+        backButton.setMaximumSize(new Dimension(150, 25));
+        backButton.addActionListener(e -> {
+            frame.getContentPane().removeAll();
+            frame.getContentPane().add(new IntroScreenUI(frame));
+            frame.revalidate();
+            frame.repaint();
+        });
+        add(backButton);
+    }
+
+    // Utility method to create consistent labels
+    private JLabel createLabel(String text, int size, Color color, int align) {
+        JLabel label = new JLabel(text, align);
+        label.setForeground(color);
+        label.setFont(new Font("Arial", Font.BOLD, size));
+        return label;
+    }
+
+    private JLabel createSectionLabel(String text) {
+        return createLabel(text, 18, Color.ORANGE, SwingConstants.LEFT);
+    }
+
+    private JLabel createDataLabel(String text) {
+        return createLabel(text, 14, Color.WHITE, SwingConstants.LEFT);
+    }
+}
@@ -1,44 +1,56 @@
 package org.example.ui;
 
+import lombok.extern.log4j.Log4j2;
+import org.example.engine.Autopilot;
+import org.example.engine.Direction;
+import org.example.engine.GameLoop;
+import org.example.engine.InputQueue;
+import org.example.engine.ReplayPlayer;
+import org.example.engine.ReplayRecorder;
+import org.example.engine.SnakeController;
+import org.example.engine.SnakeEngine;
+import org.example.metrics.Metrics;
 import org.example.service.SnakeKeyHandler;
+import org.example.model.Replay;
 import org.example.model.SessionData;
-import org.example.model.Tile;
-import org.example.service.FileService;
+import org.example.service.PersistenceWorker;
 
 import javax.swing.*;
 import java.awt.*;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
-import java.util.ArrayList;
-import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@Log4j2
+public class SnakeGameUI extends JPanel {
+    private static final int FRAME_RATE = 60;
+    private static final Font HUD_FONT = new Font("Arial", Font.PLAIN, 16);
 
-public class SnakeGameUI extends JPanel implements ActionListener {
     // Game Components
     private final int blockSize;
     private final int panelWidth;
     private final int panelHeight;
-    private final Random random = new Random();
     private long startTime;
 
     // Game
-    Tile snakeHead;
-    Tile food;
-    ArrayList<Tile> snakeBody;
-    boolean gameOver = false;
-    int moves = 0;
+    private final SnakeEngine engine;
+    private final InputQueue inputQueue = new InputQueue(8);
+    private volatile boolean dropQueuedInput;    // set on the EDT; the queue is cleared by its consumer, the loop thread
+    private final SnakeController controller;   // inputQueue, or the autopilot
+    private final ReplayRecorder replayRecorder = new ReplayRecorder();
+    private volatile Replay lastReplay;
+    private volatile ReplayPlayer replayPlayer;  // set while watching a replay instead of playing
 
     // Game Logic
-    Timer gameLoop;
-    int velocityX;
-    int velocityY;
+    private final GameLoop gameLoop;
+    private int cameraX;  // top-left board cell shown in the panel
+    private int cameraY;
+    private final BoardRenderer boardRenderer;
+    private final ActiveGameCanvas activeCanvas;  // null when rendering through Swing repaints
+    private final HudText scoreText = new HudText(32);
+    private final HudText timedText = new HudText(64);
+    private volatile double interpolation;
     String gameMode;
 
-    int timeLimitSeconds;
-    int foodToEat;
-    int tickCounter;
-    int foodEaten;
-
     private final JFrame frame; // for going back to intro panel
 
     public SnakeGameUI(int blockSize, int panelWidth, int panelHeight, String gameMode) {
@@ -46,241 +58,241 @@ public class SnakeGameUI extends JPanel implements ActionListener {
     }
 
     public SnakeGameUI(int blockSize, int panelWidth, int panelHeight, String gameMode, JFrame frame) {
+        this(blockSize, panelWidth, panelHeight, panelWidth / blockSize, panelHeight / blockSize, gameMode, frame,
+                SnakeEngine.DEFAULT_TICKS_PER_SECOND, false, false);
+    }
+
+    /**
+     * @param gridWidth       board width in cells; when larger than the panel the view scrolls with the head
+     * @param gridHeight      board height in cells
+     * @param activeRendering draw frames from the game loop thread into a BufferStrategy instead of
+     *                        requesting Swing repaints
+     * @param autopilot       let the computer play; its games are not saved to the player's stats
+     */
+    public SnakeGameUI(int blockSize, int panelWidth, int panelHeight, int gridWidth, int gridHeight, String gameMode,
+                       JFrame frame, int tickRateHz, boolean activeRendering, boolean autopilot) {
         this.blockSize = blockSize;
         this.panelWidth = panelWidth;
         this.panelHeight = panelHeight;
         this.frame = frame;
         this.gameMode = gameMode;
+        this.controller = autopilot ? new Autopilot() : inputQueue;
 
         setBackground(Color.BLACK);
         setPreferredSize(new Dimension(this.panelWidth, this.panelHeight));
 
-        // Generate a random snake head position
-        snakeHead = new Tile(random.nextInt((panelWidth / blockSize) - 10 + 1), random.nextInt((panelHeight / blockSize) - 10 + 1));
-        this.snakeBody = new ArrayList<>();
-        //this.snakeBody.add(snakeHead);
-        placeFood();
+        // All game rules live in the engine; this panel only renders it and feeds it input
+        engine = new SnakeEngine(gridWidth, gridHeight, gameMode, tickRateHz, SnakeEngine.newSeed());
+        followHead();
+        boardRenderer = new BoardRenderer(blockSize, panelWidth, panelHeight);
 
-        gameLoop = new Timer(100, this);
-        velocityX = 0;
-        velocityY = 0;
-        startTime = System.currentTimeMillis();
+        // The simulation runs on its own fixed-timestep thread; frames are repainted on the EDT
+        gameLoop = new GameLoop(tickRateHz, FRAME_RATE, this::tick, this::render);
+        startTime = System.nanoTime();
         gameLoop.start();
-        generateTimeModeValues();
 
         // Listen for keyPress
         addKeyListener(new SnakeKeyHandler(this));
         setFocusable(true);
+
+        if (activeRendering) {
+            activeCanvas = new ActiveGameCanvas(this::drawFrame);
+            activeCanvas.addKeyListener(new SnakeKeyHandler(this));
+            setLayout(new BorderLayout());
+            add(activeCanvas, BorderLayout.CENTER);
+        } else {
+            activeCanvas = null;
+        }
+    }
+
+    @Override
+    public boolean requestFocusInWindow() {
+        return activeCanvas != null && activeCanvas.isShowing() ? activeCanvas.requestFocusInWindow() : super.requestFocusInWindow();
     }
 
+    // Only the dirty rectangles requested by tick() and render() are repainted; the clip limits the work
     public void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        draw(g);
+        long start = System.nanoTime();
+        synchronized (engine) {
+            draw(g);
+        }
+        Metrics.PAINT.recordSince(start);
     }
 
     public void draw(Graphics g) {
-        // Grid
-        //  for (int i = 0; i < panelWidth/blockSize; i++) {
-        //      g.drawLine(i * blockSize, 0, i * blockSize, panelHeight);
-        //      g.drawLine(0,i * blockSize, panelWidth,  i * blockSize);
-        //  }
-
-        // Food
-        g.setColor(Color.RED);
-        // g.fillRect(food.getX() * blockSize, food.getY() * blockSize, blockSize, blockSize);
-        g.fill3DRect(food.getX() * blockSize, food.getY() * blockSize, blockSize, blockSize, true);
-
-        // Set Snake Head
-        g.setColor(Color.GREEN);
-        // g.fillRect(snakeHead.getX() * blockSize, snakeHead.getY() * blockSize, blockSize, blockSize);
-        g.fill3DRect(snakeHead.getX() * blockSize, snakeHead.getY() * blockSize, blockSize, blockSize, true);
-
-        // Snake body
-        for (Tile snakePart : snakeBody) {
-            // g.fillRect(snakePart.getX() * blockSize, snakePart.getY() * blockSize, blockSize, blockSize);
-            g.fill3DRect(snakePart.getX() * blockSize, snakePart.getY() * blockSize, blockSize, blockSize, true);
-        }
+        // Food and snake body, redrawn incrementally offscreen
+        boardRenderer.update(engine, cameraX, cameraY);
+        boardRenderer.drawBoard(g);
+
+        // Snake head, interpolated between its previous and current cell
+        boardRenderer.drawHead(g, engine, engine.isGameOver() ? 1.0 : interpolation);
 
         // Score
-        g.setFont(new Font("Arial", Font.PLAIN, 16));
-        if (gameOver) {
+        g.setFont(HUD_FONT);
+        if (engine.isGameOver()) {
             g.setColor(Color.RED);
-            g.drawString("Game Over: " + String.valueOf(snakeBody.size()), blockSize - 16, blockSize);
-            showGameOverButtons();
+            scoreText.clear().append(engine.isWon() ? "You Win: " : "Game Over: ").append(engine.getScore());
+            scoreText.draw(g, blockSize - 16, blockSize);
         } else {
-            g.drawString("Score: " + String.valueOf(snakeBody.size()), blockSize - 16, blockSize);
-            if (gameMode.equals("Timed")) {
-                int minutes = timeLimitSeconds / 60;
-                int seconds = timeLimitSeconds % 60;
-                String formattedTime = String.format("%02d:%02d", minutes, seconds);
-
-                g.drawString("Get: " + String.valueOf(foodToEat) + " Blocks in Time: " + formattedTime, blockSize + 320, blockSize);
+            g.setColor(Color.GREEN);
+            scoreText.clear().append("Score: ").append(engine.getScore());
+            scoreText.draw(g, blockSize - 16, blockSize);
+            if (engine.isTimedMode()) {
+                int minutes = engine.getTimeLimitSeconds() / 60;
+                int seconds = engine.getTimeLimitSeconds() % 60;
+
+                timedText.clear().append("Get: ").append(engine.getFoodToEat()).append(" Blocks in Time: ")
+                        .appendTwoDigits(minutes).append(":").appendTwoDigits(seconds);
+                timedText.draw(g, blockSize + 320, blockSize);
             }
         }
     }
 
-    public void placeFood() {
-        int gridWidth = panelWidth / blockSize;
-        int gridHeight = panelHeight / blockSize;
-
-        boolean validPosition;
-        do {
-            int x = random.nextInt(gridWidth);
-            int y = random.nextInt(gridHeight);
-
-            // Check that it doesn't overlap head or body
-            validPosition = true;
+    // Active rendering: a full frame into the canvas back buffer, on the game loop thread
+    private void drawFrame(Graphics g) {
+        synchronized (engine) {
+            draw(g);
+        }
+    }
 
-            if (x == snakeHead.getX() && y == snakeHead.getY()) {
-                validPosition = false;
+    // Runs on the game loop thread, once per simulation step
+    private void tick() {
+        long start = System.nanoTime();
+        if (dropQueuedInput) {
+            dropQueuedInput = false;
+            inputQueue.clear(); // turns pressed during the previous session or on the game over screen
+        }
+        synchronized (engine) {
+            int firstDirty = engine.getDirtyCount();
+            ReplayPlayer player = replayPlayer;
+            if (player != null) {
+                player.step();
             } else {
-                for (Tile segment : snakeBody) {
-                    if (segment.getX() == x && segment.getY() == y) {
-                        validPosition = false;
-                        break;
-                    }
+                Direction turn = controller.nextTurn(engine);
+                if (turn != null && controller == inputQueue) {
+                    Metrics.INPUT_LATENCY.recordSince(inputQueue.getLastOfferedAt());
                 }
+                replayRecorder.record(engine, turn);
+                engine.step(turn);
             }
-
-            if (validPosition) {
-                food = new Tile(x, y);
-            }
-        } while (!validPosition);
-    }
-
-    public void eatFood() {
-        if (food.getX() == snakeHead.getX() && food.getY() == snakeHead.getY()) {
-            // Add new segment at tail (clone the last body segment or head if first segment)
-            Tile newSegment;
-            if (snakeBody.isEmpty()) {
-                newSegment = new Tile(snakeHead.getX(), snakeHead.getY());
+            if (followHead()) {
+                repaint();
             } else {
-                Tile tail = snakeBody.get(snakeBody.size() - 1);
-                newSegment = new Tile(tail.getX(), tail.getY());
-            }
-            snakeBody.add(newSegment);
-
-            placeFood(); // Generate new food
-            foodEaten++;
-        }
-    }
-
-    private void generateTimeModeValues() {
-        Random random = new Random();
-        foodToEat = random.nextInt(20) + 1; // 1 to 20 fruits
-
-        int gridWidth = panelWidth / blockSize;
-        int gridHeight = panelHeight / blockSize;
-
-        // Base time from grid size
-        int baseTime = (gridWidth * gridHeight) / (10 * 2);
-
-        // Scale time based on valToGet (e.g., +5 seconds per fruit)
-        timeLimitSeconds = baseTime + (foodToEat * 5);
-        foodEaten = 0;
-    }
-
-    @Override
-    public void actionPerformed(ActionEvent e) {
-        eatFood();
-        move();
-        repaint();
-
-        if (gameMode.equals("Timed")) {
-            if (timeLimitSeconds <= 0){
-                gameOver = true;
-            }
-
-            if (foodEaten == foodToEat) {
-                generateTimeModeValues();
-            }
-
-            tickCounter++;
-            if (tickCounter >= 10) { // 10 ticks × 100ms = 1 second
-                timeLimitSeconds--;
-                tickCounter = 0;
+                repaintChangedCells(firstDirty);
             }
         }
+        Metrics.TICK.recordSince(start);
 
-        if (gameOver) {
+        if (replayPlayer != null && replayPlayer.isFinished()) {
             gameLoop.stop();
-            long elapsedTime = System.currentTimeMillis() - startTime;
+            SwingUtilities.invokeLater(this::showGameOverButtons);
+        } else if (engine.isGameOver()) {
+            gameLoop.stop();
+            SwingUtilities.invokeLater(this::showGameOverButtons);
+            long elapsedTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
 
             SessionData sessionData = SessionData.builder()
-                    .score(snakeBody.size())
-                    .length(snakeBody.size())
-                    .foodEaten(snakeBody.size())
+                    .score(engine.getScore())
+                    .length(engine.getScore())
+                    .foodEaten(engine.getScore())
                     .timeSpentMillis(elapsedTime)
-                    .moves(moves)
+                    .moves(engine.getMoves())
+                    .gameMode(engine.getGameMode())
                     .build();
-            new Thread(() -> FileService.writeData(sessionData)).start();
+            Replay replay = replayRecorder.finish(engine);
+            lastReplay = replay;
+            if (controller == inputQueue) {
+                PersistenceWorker.submit(sessionData, replay);
+            } else {
+                log.info("Autopilot game over: {}", sessionData);
+            }
         }
-
     }
 
-    private void move() {
-        // Save old head position
-        int oldHeadX = snakeHead.getX();
-        int oldHeadY = snakeHead.getY();
-
-        // Move head
-        snakeHead.setX(snakeHead.getX() + velocityX);
-        snakeHead.setY(snakeHead.getY() + velocityY);
-
-        // Move body segments
-        for (int i = snakeBody.size() - 1; i >= 0; i--) {
-            Tile snakePart = snakeBody.get(i);
-            if (i == 0) {
-                snakePart.setX(oldHeadX);
-                snakePart.setY(oldHeadY);
-            } else {
-                Tile prevTile = snakeBody.get(i - 1);
-                snakePart.setX(prevTile.getX());
-                snakePart.setY(prevTile.getY());
+    // Runs on the game loop thread, once per frame
+    private void render(double alpha) {
+        long start = System.nanoTime();
+        interpolation = alpha;
+        if (activeCanvas != null) {
+            activeCanvas.renderFrame();
+        } else {
+            synchronized (engine) {
+                repaintCell(engine.getHeadCell());
+                repaintCell(engine.getPreviousHeadCell());
             }
         }
-
-        checkCollision();
+        Metrics.RENDER.recordSince(start);
     }
 
-    public void checkCollision() {
-        // Check if the snake head collides with the wall
-        if (snakeHead.getY() < 0 || snakeHead.getY() >= panelWidth/blockSize ||
-                snakeHead.getX() < 0 || snakeHead.getX() >= panelWidth/blockSize) {
-            gameOver = true;
+    // Requests a repaint of the cells the last step changed, the old head and the score line
+    private void repaintChangedCells(int firstDirty) {
+        if (activeCanvas != null) {
+            return; // The next active frame redraws everything anyway
+        }
+        if (engine.isFullRedraw()) {
+            repaint();
+            return;
+        }
+        for (int i = firstDirty; i < engine.getDirtyCount(); i++) {
+            repaintCell(engine.getDirtyCell(i));
         }
+        repaintCell(engine.getPreviousHeadCell());
+        repaint(0, 0, panelWidth, blockSize + 8);
+    }
 
-        // Check if the snake head collides with its body
-        for (Tile snakePart: snakeBody) {
-            if (snakePart.getX() == snakeHead.getX() && snakePart.getY() == snakeHead.getY()) {
-                gameOver = true;
-            }
+    private void repaintCell(int cell) {
+        repaint((engine.cellX(cell) - cameraX) * blockSize, (engine.cellY(cell) - cameraY) * blockSize, blockSize, blockSize);
+    }
+
+    /**
+     * Scrolls the camera so the head stays at least a quarter of the view away from the edges,
+     * without showing anything beyond the board. Returns true if the camera moved.
+     */
+    private boolean followHead() {
+        int head = engine.getHeadCell();
+        int newCameraX = follow(cameraX, engine.cellX(head), panelWidth / blockSize, engine.getGridWidth());
+        int newCameraY = follow(cameraY, engine.cellY(head), panelHeight / blockSize, engine.getGridHeight());
+        boolean moved = newCameraX != cameraX || newCameraY != cameraY;
+        cameraX = newCameraX;
+        cameraY = newCameraY;
+        return moved;
+    }
+
+    private static int follow(int camera, int head, int view, int grid) {
+        int margin = view / 4;
+        if (head < camera + margin) {
+            camera = head - margin;
+        } else if (head >= camera + view - margin) {
+            camera = head - view + margin + 1;
         }
+        return Math.max(0, Math.min(camera, grid - view));
     }
 
+    // Runs on the EDT; the turn is applied by the game loop on a later tick
     public void handleKeyPress(KeyEvent e) {
         int key = e.getKeyCode();
-        moves++;
+        Direction turn = null;
 
         // Up or W
-        if ((key == KeyEvent.VK_UP || key == KeyEvent.VK_W) && velocityY != 1) {
-            velocityX = 0;
-            velocityY = -1;
+        if (key == KeyEvent.VK_UP || key == KeyEvent.VK_W) {
+            turn = Direction.UP;
         }
         // Down or S
-        else if ((key == KeyEvent.VK_DOWN || key == KeyEvent.VK_S) && velocityY != -1) {
-            velocityX = 0;
-            velocityY = 1;
+        else if (key == KeyEvent.VK_DOWN || key == KeyEvent.VK_S) {
+            turn = Direction.DOWN;
         }
         // Left or A
-        else if ((key == KeyEvent.VK_LEFT || key == KeyEvent.VK_A) && velocityX != 1) {
-            velocityX = -1;
-            velocityY = 0;
+        else if (key == KeyEvent.VK_LEFT || key == KeyEvent.VK_A) {
+            turn = Direction.LEFT;
         }
         // Right or D
-        else if ((key == KeyEvent.VK_RIGHT || key == KeyEvent.VK_D) && velocityX != -1) {
-            velocityX = 1;
-            velocityY = 0;
+        else if (key == KeyEvent.VK_RIGHT || key == KeyEvent.VK_D) {
+            turn = Direction.RIGHT;
+        }
+
+        if (turn != null && !inputQueue.offer(turn)) {
+            log.debug("Input queue full, dropped {}", turn);
+            Metrics.INPUTS_DROPPED.increment();
         }
     }
 
@@ -288,6 +300,11 @@ public class SnakeGameUI extends JPanel implements ActionListener {
     // GAME OVER BUTTONS (ADDED BELOW)
     // ===============================================
     private void showGameOverButtons() {
+        // The heavyweight canvas would hide the buttons, so the final frame is painted by Swing
+        if (activeCanvas != null) {
+            remove(activeCanvas);
+        }
+
         // Prevent duplicate panels
         for (Component comp : getComponents()) {
             if (comp instanceof JPanel && "overlay".equals(comp.getName())) {
@@ -302,15 +319,19 @@ public class SnakeGameUI extends JPanel implements ActionListener {
         overlay.setLayout(new GridBagLayout());
 
         JButton restartBtn = new JButton("Restart");
+        JButton replayBtn = new JButton("Watch Replay");
         JButton menuBtn = new JButton("Back to Menu");
 
         restartBtn.addActionListener(e -> restartGame());
+        replayBtn.addActionListener(e -> watchReplay());
         menuBtn.addActionListener(e -> returnToMenu());
 
         JPanel buttons = new JPanel();
         buttons.setOpaque(false);
         buttons.add(restartBtn);
         buttons.add(Box.createHorizontalStrut(20));
+        buttons.add(replayBtn);
+        buttons.add(Box.createHorizontalStrut(20));
         buttons.add(menuBtn);
 
         overlay.add(buttons);
@@ -321,24 +342,41 @@ public class SnakeGameUI extends JPanel implements ActionListener {
     }
 
     private void restartGame() {
+        startSession(null);
+    }
+
+    // Plays the last finished game back in this panel at normal speed
+    private void watchReplay() {
+        if (lastReplay != null) {
+            startSession(lastReplay);
+        }
+    }
+
+    // Clears the overlay and starts the loop again, either for a new game or for a replay
+    private void startSession(Replay replay) {
         removeAll();
+        if (activeCanvas != null) {
+            add(activeCanvas, BorderLayout.CENTER);
+        }
         revalidate();
         repaint();
 
         // Reset variables
-        snakeBody.clear();
-        velocityX = 0;
-        velocityY = 0;
-        moves = 0;
-        startTime = System.currentTimeMillis();
-        gameOver = false;
-
-        snakeHead = new Tile(random.nextInt((panelWidth / blockSize) - 10 + 1), random.nextInt((panelHeight / blockSize) - 10 + 1));
-        placeFood();
+        synchronized (engine) {
+            if (replay != null) {
+                replayPlayer = new ReplayPlayer(replay, engine);
+            } else {
+                replayPlayer = null;
+                engine.reset(SnakeEngine.newSeed());
+                replayRecorder.clear();
+            }
+            dropQueuedInput = true;
+            followHead();
+        }
+        startTime = System.nanoTime();
 
         gameLoop.start();
         requestFocusInWindow();
-        generateTimeModeValues();
     }
 
     private void returnToMenu() {
@@ -2,6 +2,7 @@ package org.example.ui;
 
 import org.example.model.UserAnalytics;
 import org.example.service.FileService;
+import org.example.service.RollupIndex;
 import org.example.utils.Formatter;
 
 import javax.swing.*;
@@ -15,8 +16,8 @@ import java.util.concurrent.atomic.AtomicReference;
 public class UserStatsUI extends JPanel {
 
     public UserStatsUI(JFrame frame) {
-        // Safely fetch analytics data (fallback to empty data if null)
-        UserAnalytics userData = FileService.userAnalytics;
+        // Latest published analytics snapshot; never null and never changes underneath us
+        UserAnalytics userData = FileService.getUserAnalytics();
 
         setLayout(new GridLayout(0, 1, 10, 10)); // one column, vertical spacing
         setBackground(Color.DARK_GRAY);
@@ -53,6 +54,25 @@ public class UserStatsUI extends JPanel {
         add(createDataLabel("Shortest Food Eaten: " + userData.getShortestFoodEaten()));
         add(createDataLabel("Shortest Time (ms): " + Formatter.formatTime(userData.getShortestTimeSpent())));
 
+        // ===== DISTRIBUTIONS =====
+        add(createSectionLabel("Distributions (median / p90 / p99)"));
+        add(createDataLabel("Score: " + userData.getMedianScore() + " / " + userData.getP90Score()
+                + " / " + userData.getP99Score()));
+        add(createDataLabel("Length: " + userData.getMedianLength() + " / " + userData.getP90Length()
+                + " / " + userData.getP99Length()));
+        add(createDataLabel("Time: " + Formatter.formatTime(userData.getMedianTimeSpent())
+                + " / " + Formatter.formatTime(userData.getP90TimeSpent())
+                + " / " + Formatter.formatTime(userData.getP99TimeSpent())));
+
+        // ===== RECENT =====
+        RollupIndex rollups = FileService.getRepository().getRollups();
+        add(createSectionLabel("Last 30 Days"));
+        for (String mode : new String[]{"Normal", "Timed"}) {
+            RollupIndex.Totals recent = rollups.lastDays(mode, 30);
+            add(createDataLabel(mode + ": " + recent.getGames() + " games, average score "
+                    + String.format("%.1f", recent.getAverageScore()) + ", best " + recent.getBestScore()));
+        }
+
         // ===== BACK BUTTON =====
         JButton backButton = new JButton("Back");
         backButton.setMaximumSize(new Dimension(150, 25));
@@ -20,4 +20,12 @@ public class Formatter {
         return sb.toString().trim();
     }
 
+    // Converts a short duration into the largest unit that keeps it readable: "850 ns", "12 us", "3.4 ms", "1.2 s"
+    public static String formatNanos(long nanos) {
+        if (nanos < 1_000) return nanos + " ns";
+        if (nanos < 1_000_000) return nanos / 1_000 + " us";
+        if (nanos < 1_000_000_000) return String.format("%.1f ms", nanos / 1e6);
+        return String.format("%.1f s", nanos / 1e9);
+    }
+
 }
@@ -0,0 +1,115 @@
+package org.example.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of durations in nanoseconds that any number of threads can record into without
+ * locking. It uses the same log-linear buckets as {@link QuantileSketch} (within about 1.6%), in a
+ * fixed array covering up to about 68 seconds; longer durations are counted as 68 seconds.
+ * Recording is one bucket increment, an adder increment and, for a new maximum, a CAS.
+ * <p>
+ * Readers take a {@link Snapshot}. It is not taken atomically with respect to concurrent recording,
+ * so a snapshot may be off by the values recorded while it was being copied.
+ */
+public class LatencyHistogram {
+    private static final long MAX_TRACKED = (1L << 36) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(QuantileSketch.indexOf(MAX_TRACKED) + 1);
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        long value = Math.min(Math.max(0, nanos), MAX_TRACKED);
+        counts.incrementAndGet(QuantileSketch.indexOf(value));
+        total.add(value);
+
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * Records the time elapsed since {@code startNanos}, a {@link System#nanoTime()} reading.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[counts.length()];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new Snapshot(copy, total.sum(), max.get());
+    }
+
+    /**
+     * Counts copied out of a histogram, for quantiles and for the difference between two readings.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long total;
+        private final long max;
+        private final long count;
+
+        private Snapshot(long[] counts, long total, long max) {
+            this.counts = counts;
+            this.total = total;
+            this.max = max;
+            long sum = 0;
+            for (long c : counts) {
+                sum += c;
+            }
+            this.count = sum;
+        }
+
+        /**
+         * The values recorded between {@code earlier} and this snapshot. Its maximum is the top of
+         * the highest bucket used in between.
+         */
+        public Snapshot since(Snapshot earlier) {
+            long[] delta = new long[counts.length];
+            long highest = 0;
+            for (int i = 0; i < delta.length; i++) {
+                delta[i] = counts[i] - earlier.counts[i];
+                if (delta[i] > 0) {
+                    highest = QuantileSketch.highestValueIn(i);
+                }
+            }
+            return new Snapshot(delta, total - earlier.total, Math.min(highest, max));
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMean() {
+            return count == 0 ? 0 : total / count;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * The value at the given quantile (0.5 for the median, 0.99 for p99), or 0 when empty.
+         */
+        public long quantile(double q) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(q * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(QuantileSketch.highestValueIn(i), max);
+                }
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package org.example.utils;
+
+import java.util.Arrays;
+
+/**
+ * An order-statistic treap over (key, id) pairs, ordered by key from highest to lowest and then by
+ * id, so position 0 holds the best entry. Each node records the size of its subtree, which makes
+ * inserting, ranking a key and finding the entry at a position all O(log n) expected. Nodes live
+ * in parallel primitive arrays rather than as objects.
+ */
+public class RankedIndex {
+    private long[] keys = new long[16];
+    private long[] ids = new long[16];
+    private int[] priorities = new int[16];
+    private int[] left = new int[16];
+    private int[] right = new int[16];
+    private int[] sizes = new int[16];
+    private int count;
+    private int root = -1;
+    private int seed = 0x2545F491; // xorshift state for node priorities
+
+    // Results of split()
+    private int splitLeft;
+    private int splitRight;
+
+    public int size() {
+        return count;
+    }
+
+    public void clear() {
+        count = 0;
+        root = -1;
+    }
+
+    public void insert(long key, long id) {
+        if (count == keys.length) {
+            grow();
+        }
+        int node = count++;
+        keys[node] = key;
+        ids[node] = id;
+        priorities[node] = nextPriority();
+        left[node] = -1;
+        right[node] = -1;
+        sizes[node] = 1;
+        root = insert(root, node);
+    }
+
+    /**
+     * Whether the index holds an entry with exactly this key and id.
+     */
+    public boolean contains(long key, long id) {
+        int t = root;
+        while (t >= 0) {
+            if (keys[t] == key && ids[t] == id) {
+                return true;
+            }
+            t = before(key, id, keys[t], ids[t]) ? left[t] : right[t];
+        }
+        return false;
+    }
+
+    /**
+     * Number of entries with a strictly higher key.
+     */
+    public int countAbove(long key) {
+        int above = 0;
+        int t = root;
+        while (t >= 0) {
+            if (keys[t] > key) {
+                above += size(left[t]) + 1;
+                t = right[t];
+            } else {
+                t = left[t];
+            }
+        }
+        return above;
+    }
+
+    /**
+     * Number of entries with a strictly lower key.
+     */
+    public int countBelow(long key) {
+        int below = 0;
+        int t = root;
+        while (t >= 0) {
+            if (keys[t] < key) {
+                below += size(right[t]) + 1;
+                t = left[t];
+            } else {
+                t = right[t];
+            }
+        }
+        return below;
+    }
+
+    /**
+     * 1-based rank a key would have; entries with equal keys share a rank.
+     */
+    public int rankOf(long key) {
+        return countAbove(key) + 1;
+    }
+
+    public long keyAt(int position) {
+        return keys[nodeAt(position)];
+    }
+
+    public long idAt(int position) {
+        return ids[nodeAt(position)];
+    }
+
+    private int nodeAt(int position) {
+        if (position < 0 || position >= count) {
+            throw new IndexOutOfBoundsException("Position " + position + " out of bounds for size " + count);
+        }
+        int t = root;
+        while (true) {
+            int leftSize = size(left[t]);
+            if (position < leftSize) {
+                t = left[t];
+            } else if (position == leftSize) {
+                return t;
+            } else {
+                position -= leftSize + 1;
+                t = right[t];
+            }
+        }
+    }
+
+    private int insert(int t, int node) {
+        if (t < 0) {
+            return node;
+        }
+        if (priorities[node] > priorities[t]) {
+            // The new node becomes the root of this subtree
+            split(t, keys[node], ids[node]);
+            left[node] = splitLeft;
+            right[node] = splitRight;
+            update(node);
+            return node;
+        }
+        if (before(keys[node], ids[node], keys[t], ids[t])) {
+            left[t] = insert(left[t], node);
+        } else {
+            right[t] = insert(right[t], node);
+        }
+        update(t);
+        return t;
+    }
+
+    // Splits subtree t into the entries ordered before (key, id) and the rest
+    private void split(int t, long key, long id) {
+        if (t < 0) {
+            splitLeft = -1;
+            splitRight = -1;
+            return;
+        }
+        if (before(keys[t], ids[t], key, id)) {
+            split(right[t], key, id);
+            right[t] = splitLeft;
+            update(t);
+            splitLeft = t;
+        } else {
+            split(left[t], key, id);
+            left[t] = splitRight;
+            update(t);
+            splitRight = t;
+        }
+    }
+
+    private static boolean before(long key, long id, long otherKey, long otherId) {
+        return key > otherKey || (key == otherKey && id < otherId);
+    }
+
+    private void update(int t) {
+        sizes[t] = size(left[t]) + size(right[t]) + 1;
+    }
+
+    private int size(int t) {
+        return t < 0 ? 0 : sizes[t];
+    }
+
+    private int nextPriority() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+
+    private void grow() {
+        int capacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        priorities = Arrays.copyOf(priorities, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        sizes = Arrays.copyOf(sizes, capacity);
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OccupancyGridTest {
+    @Test
+    void chunksAreAllocatedOnFirstUseAndReleasedWhenEmpty() {
+        OccupancyGrid grid = new OccupancyGrid(4 * 4096);
+        assertEquals(0, grid.getAllocatedChunks());
+
+        grid.set(10);
+        grid.set(11);
+        grid.set(3 * 4096);
+        assertEquals(2, grid.getAllocatedChunks());
+        assertTrue(grid.isOccupied(11));
+        assertFalse(grid.isOccupied(12));
+
+        grid.clear(10);
+        assertEquals(2, grid.getAllocatedChunks());
+        grid.clear(11);
+        grid.clear(11); // already free
+        assertEquals(1, grid.getAllocatedChunks());
+        assertFalse(grid.isOccupied(11));
+
+        grid.clearAll();
+        assertEquals(0, grid.getAllocatedChunks());
+        assertFalse(grid.isOccupied(3 * 4096));
+    }
+
+    @Test
+    void setTwiceCountsOnce() {
+        OccupancyGrid grid = new OccupancyGrid(100);
+        grid.set(7);
+        grid.set(7);
+        grid.clear(7);
+
+        assertEquals(0, grid.getAllocatedChunks());
+        assertEquals(7, grid.selectFree(7));
+    }
+
+    @Test
+    void copyIsIndependentOfTheOriginal() {
+        OccupancyGrid grid = new OccupancyGrid(10_000);
+        grid.set(1);
+        grid.set(5_000);
+        OccupancyGrid copy = new OccupancyGrid(10_000);
+        copy.copyFrom(grid);
+        grid.clear(1);
+        grid.set(2);
+
+        assertTrue(copy.isOccupied(1));
+        assertFalse(copy.isOccupied(2));
+        assertTrue(copy.isOccupied(5_000));
+        assertEquals(2, copy.getAllocatedChunks());
+    }
+
+    @Test
+    void selectFreeWalksFreeCellsInOrder() {
+        int cellCount = 3 * 4096 + 100; // a partial last chunk
+        OccupancyGrid grid = new OccupancyGrid(cellCount);
+        boolean[] taken = new boolean[cellCount];
+        Random random = new Random(1);
+        for (int i = 0; i < 5000; i++) {
+            int cell = random.nextInt(cellCount);
+            grid.set(cell);
+            taken[cell] = true;
+        }
+        // Fill the second chunk completely so it is skipped by its population
+        for (int cell = 4096; cell < 2 * 4096; cell++) {
+            grid.set(cell);
+            taken[cell] = true;
+        }
+
+        List<Integer> free = new ArrayList<>();
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (!taken[cell]) {
+                free.add(cell);
+            }
+        }
+        for (int rank = 0; rank < free.size(); rank++) {
+            assertEquals(free.get(rank), grid.selectFree(rank));
+        }
+        assertEquals(-1, grid.selectFree(free.size()));
+    }
+
+    @Test
+    void selectFreeDependsOnlyOnWhichCellsAreTaken() {
+        OccupancyGrid forward = new OccupancyGrid(10_000);
+        OccupancyGrid backward = new OccupancyGrid(10_000);
+        for (int cell = 0; cell < 10_000; cell += 3) {
+            forward.set(cell);
+            backward.set(9_999 - cell);
+            backward.clear(9_999 - cell);
+        }
+        for (int cell = 9_999 - 9_999 % 3; cell >= 0; cell -= 3) {
+            backward.set(cell);
+        }
+
+        for (int rank = 0; rank < 6_666; rank += 97) {
+            assertEquals(forward.selectFree(rank), backward.selectFree(rank));
+        }
+    }
+}
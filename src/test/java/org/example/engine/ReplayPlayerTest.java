@@ -0,0 +1,90 @@
+package org.example.engine;
+
+import org.example.model.Replay;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplayPlayerTest {
+    private SnakeEngine played;
+    private Replay replay;
+
+    // Records an autopilot game on a small board, long enough to span several keyframes
+    @BeforeEach
+    void recordGame() {
+        played = new SnakeEngine(20, 20, "Normal", SnakeEngine.DEFAULT_TICKS_PER_SECOND, 42);
+        Autopilot autopilot = new Autopilot(7);
+        ReplayRecorder recorder = new ReplayRecorder();
+        while (!played.isGameOver() && played.getTicks() < 5_000) {
+            Direction turn = autopilot.nextTurn(played);
+            recorder.record(played, turn);
+            played.step(turn);
+        }
+        replay = recorder.finish(played);
+    }
+
+    @Test
+    void playingToTheEndReproducesTheGame() {
+        ReplayPlayer player = ReplayPlayer.headless(replay);
+        player.runToEnd();
+
+        assertTrue(player.isFinished());
+        assertSameState(played, player.getEngine());
+    }
+
+    @Test
+    void seekingMatchesPlayingStraightThrough() {
+        ReplayPlayer player = ReplayPlayer.headless(replay);
+        player.runToEnd(); // keeps every keyframe
+
+        for (long tick : new long[]{1234, 10, 3999, 501, 500, replay.getTotalTicks()}) {
+            player.seek(tick);
+
+            ReplayPlayer reference = ReplayPlayer.headless(replay);
+            while (reference.getEngine().getTicks() < tick && reference.step()) {
+                // play forward
+            }
+            assertSameState(reference.getEngine(), player.getEngine());
+        }
+    }
+
+    @Test
+    void keyframeResumesOnAnotherEngine() {
+        SnakeEngine source = new SnakeEngine(20, 20, "Normal", SnakeEngine.DEFAULT_TICKS_PER_SECOND, 42);
+        Autopilot autopilot = new Autopilot(7);
+        for (int i = 0; i < 700; i++) {
+            source.step(autopilot.nextTurn(source));
+        }
+
+        SnakeEngine copy = new SnakeEngine(20, 20, "Normal", SnakeEngine.DEFAULT_TICKS_PER_SECOND, 1);
+        copy.restore(source.keyframe());
+        assertSameState(source, copy);
+
+        // The same turns keep producing the same food
+        for (int i = 0; i < 700 && !source.isGameOver(); i++) {
+            Direction turn = autopilot.nextTurn(source);
+            source.step(turn);
+            copy.step(turn);
+            assertSameState(source, copy);
+        }
+    }
+
+    private static void assertSameState(SnakeEngine expected, SnakeEngine actual) {
+        assertEquals(expected.getTicks(), actual.getTicks());
+        assertEquals(expected.getFoodCell(), actual.getFoodCell());
+        assertEquals(expected.isGameOver(), actual.isGameOver());
+        assertEquals(expected.getMoves(), actual.getMoves());
+        assertArrayEquals(cells(expected), cells(actual));
+    }
+
+    private static int[] cells(SnakeEngine engine) {
+        int[] cells = new int[engine.getLength()];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = engine.getSegmentCell(i);
+        }
+        return cells;
+    }
+}
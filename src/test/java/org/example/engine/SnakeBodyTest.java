@@ -0,0 +1,77 @@
+package org.example.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SnakeBodyTest {
+    @Test
+    void headIsTheLastCellAddedAndTailTheOldest() {
+        SnakeBody body = new SnakeBody();
+        body.addHead(5);
+        body.addHead(6);
+        body.addHead(7);
+
+        assertEquals(3, body.size());
+        assertEquals(7, body.head());
+        assertEquals(5, body.tail());
+        assertEquals(6, body.get(1));
+        assertEquals(5, body.removeTail());
+        assertEquals(6, body.tail());
+    }
+
+    @Test
+    void keepsItsOrderAcrossWrapsAndGrowth() {
+        SnakeBody body = new SnakeBody();
+        Deque<Integer> expected = new ArrayDeque<>();
+        int cell = 0;
+        // Move along a while so the head wraps around the buffer, then grow past its capacity
+        for (int step = 0; step < 500; step++) {
+            body.addHead(cell);
+            expected.addFirst(cell);
+            cell++;
+            if (step < 300 && body.size() > 40) {
+                assertEquals((int) expected.removeLast(), body.removeTail());
+            }
+        }
+
+        assertEquals(expected.size(), body.size());
+        Iterator<Integer> cells = expected.iterator();
+        for (int i = 0; i < body.size(); i++) {
+            assertEquals((int) cells.next(), body.get(i));
+        }
+    }
+
+    @Test
+    void copyIsIndependentOfTheOriginal() {
+        SnakeBody body = new SnakeBody();
+        for (int cell = 0; cell < 10; cell++) {
+            body.addHead(cell);
+        }
+        SnakeBody copy = new SnakeBody();
+        copy.copyFrom(body);
+        body.addHead(99);
+        body.removeTail();
+
+        assertEquals(10, copy.size());
+        assertEquals(9, copy.head());
+        assertEquals(0, copy.tail());
+    }
+
+    @Test
+    void clearEmptiesTheBody() {
+        SnakeBody body = new SnakeBody();
+        body.addHead(1);
+        body.addHead(2);
+        body.clear();
+        body.addHead(3);
+
+        assertEquals(1, body.size());
+        assertEquals(3, body.head());
+        assertEquals(3, body.tail());
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.service;
+
+import org.example.model.SessionData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * FileService keeps its state in statics, so each start of the game runs in a JVM of its own on a
+ * scratch data directory.
+ */
+class FileServiceRestartTest {
+    private static final String RESULT = "result=";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void gameSavedBeforeTheHistoryIsReadDoesNotHideIt() throws Exception {
+        // A history written by an older version: no analytics snapshot and no leaderboard index yet
+        try (SessionLog sessionLog = new SessionLog(dir.resolve("log"), dir.resolve("snakeData.csv"))) {
+            sessionLog.append(sessions(5), true);
+        }
+
+        assertEquals("1", start("save"));   // one game saved before the history is read, then quit
+        assertEquals("6", start("load"));   // the next start still counts the whole history
+        assertEquals("6", start("load"));   // and so does the one after, from the snapshot
+    }
+
+    @Test
+    void historyThatCannotBeReadToTheEndIsNotPublished() throws Exception {
+        Path logDir = dir.resolve("log");
+        try (SessionLog sessionLog = new SessionLog(logDir, dir.resolve("snakeData.csv"))) {
+            sessionLog.append(sessions(5), true);
+        }
+        // The first segment can no longer be read, but the log still opens from the last one
+        Files.move(logDir.resolve("sessions-00000000.csv"), logDir.resolve("sessions-00000001.csv"));
+        Files.createDirectory(logDir.resolve("sessions-00000000.csv"));
+
+        assertEquals("0", start("load"));
+        assertFalse(Files.exists(dir.resolve("analytics.bin")));
+    }
+
+    // Starts a game process for the step and returns what it reports
+    private String start(String step) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"),
+                "-Dsnake.dataDir=" + dir,
+                Step.class.getName(), step)
+                .redirectErrorStream(true)
+                .start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertEquals(0, process.waitFor(), output);
+        for (String line : output.split("\\R")) {
+            if (line.startsWith(RESULT)) {
+                return line.substring(RESULT.length());
+            }
+        }
+        throw new AssertionError("No result from step '" + step + "':\n" + output);
+    }
+
+    private static List<SessionData> sessions(int count) {
+        List<SessionData> sessions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            sessions.add(SessionData.builder().id(i).score(i * 10L).length(i + 1).foodEaten(i).moves(i * 5).build());
+        }
+        return sessions;
+    }
+
+    /**
+     * One start of the game, up to the point the test cares about.
+     */
+    static class Step {
+        public static void main(String[] args) {
+            FileService.loadAnalyticsSnapshot();
+            if ("save".equals(args[0])) {
+                FileService.writeBatch(sessions(1), true);
+            } else {
+                FileService.getUserData();
+            }
+            System.out.println(RESULT + FileService.getUserAnalytics().getTotalGames());
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.service;
+
+import org.example.model.SessionData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LeaderboardTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void catchUpAddsTheSessionsTheFileMissedWhereverTheyAre() throws IOException {
+        List<SessionData> sessions = sessions(5);
+        Leaderboard leaderboard = new Leaderboard(dir.resolve("leaderboard.idx"));
+        leaderboard.add(List.of(sessions.get(0), sessions.get(1), sessions.get(3)), true);
+
+        leaderboard.catchUp(history(sessions));
+
+        assertEquals(5, leaderboard.size());
+        assertEquals(List.of(4L, 3L, 2L, 1L, 0L), topIds(leaderboard));
+    }
+
+    @Test
+    void catchUpRebuildsWhenTheLeaderboardHoldsUnknownSessions() throws IOException {
+        List<SessionData> sessions = sessions(3);
+        Leaderboard leaderboard = new Leaderboard(dir.resolve("leaderboard.idx"));
+        leaderboard.add(sessions(8).subList(5, 8), true);
+
+        leaderboard.catchUp(history(sessions));
+
+        assertEquals(List.of(2L, 1L, 0L), topIds(leaderboard));
+    }
+
+    @Test
+    void catchUpIsANoOpWhenEverySessionIsKnown() throws IOException {
+        List<SessionData> sessions = sessions(4);
+        Path file = dir.resolve("leaderboard.idx");
+        Leaderboard leaderboard = new Leaderboard(file);
+        leaderboard.add(sessions, true);
+        long sizeBefore = file.toFile().length();
+
+        leaderboard.catchUp(history(sessions));
+
+        assertEquals(4, leaderboard.size());
+        assertEquals(sizeBefore, file.toFile().length());
+    }
+
+    @Test
+    void lastIsTheNewestSessionAfterAReload() throws IOException {
+        List<SessionData> sessions = sessions(3);
+        Path file = dir.resolve("leaderboard.idx");
+        Leaderboard leaderboard = new Leaderboard(file);
+        leaderboard.add(List.of(sessions.get(0), sessions.get(2)), true);
+        leaderboard.add(List.of(sessions.get(1)), true); // caught up late
+
+        Leaderboard reloaded = new Leaderboard(file);
+        reloaded.load();
+
+        Leaderboard.Entry last = reloaded.last(Leaderboard.Metric.SCORE);
+        assertEquals(2, last.getSessionId());
+        assertEquals(20, last.getKey());
+        assertEquals(1, last.getRank());
+    }
+
+    @Test
+    void efficiencyIsFoodPerMove() throws IOException {
+        Leaderboard leaderboard = new Leaderboard(dir.resolve("leaderboard.idx"));
+        SessionData data = SessionData.builder().id(0).foodEaten(1).moves(3).build();
+        leaderboard.add(List.of(data), true);
+
+        long key = leaderboard.last(Leaderboard.Metric.EFFICIENCY).getKey();
+        assertEquals(1.0 / 3, Double.longBitsToDouble(key));
+    }
+
+    private static List<Long> topIds(Leaderboard leaderboard) {
+        List<Long> ids = new ArrayList<>();
+        for (Leaderboard.Entry entry : leaderboard.top(Leaderboard.Metric.SCORE, Integer.MAX_VALUE)) {
+            ids.add(entry.getSessionId());
+        }
+        return ids;
+    }
+
+    private static SessionRepository.Snapshot history(List<SessionData> sessions) {
+        SessionRepository repository = new SessionRepository();
+        repository.addAll(sessions);
+        return repository.snapshot();
+    }
+
+    // Session i scores 10 * i, so the best session has the highest id
+    private static List<SessionData> sessions(int count) {
+        List<SessionData> sessions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            sessions.add(SessionData.builder()
+                    .id(i)
+                    .score(i * 10L)
+                    .length(i + 1)
+                    .foodEaten(i)
+                    .moves(i * 4)
+                    .timeSpentMillis(1000L * (i + 1))
+                    .build());
+        }
+        return sessions;
+    }
+}
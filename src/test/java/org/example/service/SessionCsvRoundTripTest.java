@@ -0,0 +1,124 @@
+package org.example.service;
+
+import org.example.model.SessionData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SessionCsvRoundTripTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void exportThenImportKeepsEverySession() throws IOException {
+        List<SessionData> sessions = sampleSessions();
+        Path source = dir.resolve("source");
+        try (SessionColumnStore store = new SessionColumnStore(source)) {
+            store.appendAll(sessions);
+        }
+
+        Path csv = dir.resolve("export.csv");
+        assertEquals(sessions.size(), SessionColumnStore.exportCsv(source, csv));
+        Path target = dir.resolve("target");
+        assertEquals(sessions.size(), SessionColumnStore.importCsv(csv, target));
+
+        assertEquals(sessions, readStore(target));
+    }
+
+    @Test
+    void exportedFileIsAdoptedAsLegacyHistory() throws IOException {
+        List<SessionData> sessions = sampleSessions();
+        Path source = dir.resolve("source");
+        try (SessionColumnStore store = new SessionColumnStore(source)) {
+            store.appendAll(sessions);
+        }
+        Path csv = dir.resolve("snakeData.csv");
+        SessionColumnStore.exportCsv(source, csv);
+
+        List<SessionData> loaded = new ArrayList<>();
+        try (SessionLog sessionLog = new SessionLog(dir.resolve("log"), csv)) {
+            sessionLog.load(loaded::add, loaded::clear);
+            assertEquals(sessions.size(), sessionLog.getNextId());
+        }
+        assertEquals(sessions, loaded);
+    }
+
+    @Test
+    void logSegmentImportsWithGameModes() throws IOException {
+        List<SessionData> sessions = sampleSessions();
+        Path logDir = dir.resolve("log");
+        try (SessionLog sessionLog = new SessionLog(logDir, dir.resolve("missing.csv"))) {
+            sessionLog.append(sampleSessions(), true);
+        }
+
+        Path target = dir.resolve("target");
+        assertEquals(sessions.size(), SessionColumnStore.importCsv(logDir.resolve("sessions-00000000.csv"), target));
+        assertEquals(sessions, readStore(target));
+    }
+
+    @Test
+    void segmentImportDropsSessionsBeforeAReset() throws IOException {
+        Path logDir = dir.resolve("log");
+        try (SessionLog sessionLog = new SessionLog(logDir, dir.resolve("missing.csv"))) {
+            sessionLog.append(sampleSessions(), true);
+            sessionLog.reset();
+            sessionLog.append(sampleSessions().subList(0, 2), true);
+        }
+
+        Path target = dir.resolve("target");
+        assertEquals(2, SessionColumnStore.importCsv(logDir.resolve("sessions-00000000.csv"), target));
+        assertEquals(sampleSessions().subList(0, 2), readStore(target));
+    }
+
+    @Test
+    void importAfterAResetKeepsWhatTheStoreAlreadyHeld() throws IOException {
+        Path target = dir.resolve("target");
+        try (SessionColumnStore store = new SessionColumnStore(target)) {
+            store.appendAll(sampleSessions());
+        }
+        Path logDir = dir.resolve("log");
+        try (SessionLog sessionLog = new SessionLog(logDir, dir.resolve("missing.csv"))) {
+            sessionLog.append(sampleSessions(), true);
+            sessionLog.reset();
+            sessionLog.append(sampleSessions().subList(0, 1), true);
+        }
+
+        assertEquals(1, SessionColumnStore.importCsv(logDir.resolve("sessions-00000000.csv"), target));
+        List<SessionData> expected = new ArrayList<>(sampleSessions());
+        expected.add(sampleSessions().get(0));
+        assertEquals(expected, readStore(target));
+    }
+
+    private static List<SessionData> readStore(Path directory) throws IOException {
+        List<SessionData> read = new ArrayList<>();
+        try (SessionColumnStore store = new SessionColumnStore(directory)) {
+            store.forEach(read::add);
+        }
+        return read;
+    }
+
+    // Ids match what the log assigns, so sessions compare equal after going through it
+    private static List<SessionData> sampleSessions() {
+        List<SessionData> sessions = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            sessions.add(SessionData.builder()
+                    .id(i)
+                    .score(i * 10L)
+                    .length(i * 10 + 1)
+                    .foodEaten(i * 10)
+                    .timeSpentMillis(1000L * (i + 1))
+                    .moves(i * 3)
+                    .gameMode(i % 2 == 0 ? "Normal" : "Timed")
+                    .date(LocalDateTime.of(2025, 10, 6, 12, i, 30))
+                    .build());
+        }
+        return sessions;
+    }
+}
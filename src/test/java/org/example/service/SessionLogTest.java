@@ -0,0 +1,193 @@
+package org.example.service;
+
+import org.example.model.SessionData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionLogTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void appendedSessionsLoadBackWithTheirIds() throws IOException {
+        try (SessionLog sessionLog = newLog()) {
+            sessionLog.append(sessions(0, 5), true);
+        }
+
+        try (SessionLog sessionLog = newLog()) {
+            assertEquals(5, sessionLog.getNextId());
+            assertEquals(sessions(0, 5), load(sessionLog));
+        }
+    }
+
+    @Test
+    void rowWithABadChecksumIsSkipped() throws IOException {
+        try (SessionLog sessionLog = newLog()) {
+            sessionLog.append(sessions(0, 3), true);
+        }
+        List<String> lines = Files.readAllLines(segment(0));
+        lines.set(2, lines.get(2).replace("\"10\"", "\"99\"")); // session 1's score
+        Files.write(segment(0), lines);
+
+        try (SessionLog sessionLog = newLog()) {
+            List<SessionData> expected = sessions(0, 3);
+            expected.remove(1);
+            assertEquals(expected, load(sessionLog));
+            assertEquals(3, sessionLog.getNextId());
+        }
+    }
+
+    @Test
+    void tornLastRowIsTrimmedOnOpen() throws IOException {
+        try (SessionLog sessionLog = newLog()) {
+            sessionLog.append(sessions(0, 3), true);
+        }
+        long intactSize = Files.size(segment(0));
+        Files.writeString(segment(0), "\"3\",\"30\",\"4", StandardOpenOption.APPEND);
+
+        try (SessionLog sessionLog = newLog()) {
+            assertEquals(3, sessionLog.getNextId());
+            assertEquals(intactSize, Files.size(segment(0)));
+            sessionLog.append(sessions(3, 1), true);
+        }
+        try (SessionLog sessionLog = newLog()) {
+            assertEquals(sessions(0, 4), load(sessionLog));
+        }
+    }
+
+    @Test
+    void lastRowWithABadChecksumIsTrimmedAndItsIdReused() throws IOException {
+        try (SessionLog sessionLog = newLog()) {
+            sessionLog.append(sessions(0, 3), true);
+        }
+        List<String> lines = Files.readAllLines(segment(0));
+        lines.set(3, lines.get(3).replace("\"20\"", "\"21\""));
+        Files.write(segment(0), lines);
+
+        try (SessionLog sessionLog = newLog()) {
+            assertEquals(2, sessionLog.getNextId());
+            assertEquals(sessions(0, 2), load(sessionLog));
+        }
+    }
+
+    @Test
+    void legacyFileWithoutModesOrChecksumsIsAdopted() throws IOException {
+        Path legacy = dir.resolve("snakeData.csv");
+        Files.write(legacy, List.of(
+                "Id,Score,Snake-Length,Food-Eaten,Time-Spent,Moves,Date",
+                "0,40,5,4,9000,120,2024-03-01T10:15:30",
+                "1,70,8,7,15000,200,2024-03-01T10:20:00"), StandardCharsets.UTF_8);
+
+        try (SessionLog sessionLog = new SessionLog(dir.resolve("log"), legacy)) {
+            List<SessionData> loaded = load(sessionLog);
+            assertEquals(2, loaded.size());
+            assertEquals(70, loaded.get(1).getScore());
+            assertEquals("Normal", loaded.get(1).getGameMode());
+            assertEquals(LocalDateTime.of(2024, 3, 1, 10, 15, 30), loaded.get(0).getDate());
+            assertEquals(2, sessionLog.getNextId());
+        }
+        assertTrue(Files.readAllLines(segment(0)).get(0).endsWith("\"Crc\""));
+    }
+
+    @Test
+    void resetStartsANewEpochAndCompactsTheOldOne() throws IOException {
+        List<SessionData> loaded = new ArrayList<>();
+        int[] epochs = {0};
+        try (SessionLog sessionLog = newLog()) {
+            sessionLog.append(sessions(0, 3), true);
+            sessionLog.reset();
+            assertEquals(0, sessionLog.getNextId());
+            sessionLog.append(sessions(0, 2), true);
+
+            sessionLog.load(loaded::add, () -> {
+                epochs[0]++;
+                loaded.clear();
+            });
+        }
+        assertEquals(1, epochs[0]);
+        assertEquals(sessions(0, 2), loaded);
+
+        List<String> lines = Files.readAllLines(segment(0));
+        assertEquals(4, lines.size()); // header, marker and the two new sessions
+        assertTrue(lines.get(1).startsWith("\"#epoch\""));
+
+        try (SessionLog sessionLog = newLog()) {
+            assertEquals(2, sessionLog.getNextId());
+            assertEquals(sessions(0, 2), load(sessionLog));
+        }
+    }
+
+    @Test
+    void resetAndAppendReopenAClosedWriter() throws IOException {
+        try (SessionLog sessionLog = newLog()) {
+            sessionLog.append(sessions(0, 2), true);
+            sessionLog.close();
+            sessionLog.reset();
+            sessionLog.close();
+            sessionLog.append(sessions(0, 1), true);
+        }
+
+        try (SessionLog sessionLog = newLog()) {
+            assertEquals(sessions(0, 1), load(sessionLog));
+            assertEquals(1, sessionLog.getNextId());
+        }
+    }
+
+    @Test
+    void loadStopsAtTheEndMarkedBeforeLaterAppends() throws IOException {
+        try (SessionLog sessionLog = newLog()) {
+            sessionLog.append(sessions(0, 3), true);
+            SessionLog.End end = sessionLog.markEnd();
+            sessionLog.append(sessions(3, 2), true);
+
+            List<SessionData> loaded = new ArrayList<>();
+            sessionLog.load(end, loaded::add, loaded::clear);
+            assertEquals(sessions(0, 3), loaded);
+            assertEquals(sessions(0, 5), load(sessionLog));
+        }
+    }
+
+    private SessionLog newLog() {
+        return new SessionLog(dir.resolve("log"), dir.resolve("missing.csv"));
+    }
+
+    private Path segment(int number) {
+        return dir.resolve("log").resolve(String.format("sessions-%08d.csv", number));
+    }
+
+    private static List<SessionData> load(SessionLog sessionLog) throws IOException {
+        List<SessionData> loaded = new ArrayList<>();
+        sessionLog.load(loaded::add, loaded::clear);
+        return loaded;
+    }
+
+    // Session i scores 10 * i; ids match what the log assigns when appended from the start
+    private static List<SessionData> sessions(int from, int count) {
+        List<SessionData> sessions = new ArrayList<>();
+        for (int i = from; i < from + count; i++) {
+            sessions.add(SessionData.builder()
+                    .id(i)
+                    .score(i * 10L)
+                    .length(i + 3)
+                    .foodEaten(i)
+                    .timeSpentMillis(1000L * (i + 1))
+                    .moves(i * 7)
+                    .gameMode(i % 2 == 0 ? "Normal" : "Timed")
+                    .date(LocalDateTime.of(2025, 10, 6, 12, i, 30))
+                    .build());
+        }
+        return sessions;
+    }
+}
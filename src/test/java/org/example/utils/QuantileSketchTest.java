@@ -0,0 +1,95 @@
+package org.example.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuantileSketchTest {
+    @Test
+    void smallValuesAreExact() {
+        QuantileSketch sketch = new QuantileSketch();
+        for (long value = 1; value <= 100; value++) {
+            sketch.record(value);
+        }
+
+        assertEquals(50, sketch.quantile(0.5));
+        assertEquals(99, sketch.quantile(0.99));
+        assertEquals(100, sketch.quantile(1.0));
+        assertEquals(1, sketch.quantile(0.0));
+    }
+
+    @Test
+    void largeValuesAreWithinTheRelativeError() {
+        QuantileSketch sketch = new QuantileSketch();
+        long[] values = new long[100_000];
+        Random random = new Random(3);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.exp(random.nextDouble() * 30); // up to about 10^13
+            sketch.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double q : new double[]{0.1, 0.5, 0.9, 0.99, 0.999}) {
+            long exact = values[(int) Math.ceil(q * values.length) - 1];
+            long estimate = sketch.quantile(q);
+            assertTrue(estimate >= exact && estimate <= exact * 1.016 + 1, q + ": " + estimate + " vs " + exact);
+        }
+        assertEquals(values[values.length - 1], sketch.quantile(1.0));
+    }
+
+    @Test
+    void bucketsCoverTheWholeRange() {
+        for (long value : new long[]{0, 127, 128, 129, 1L << 40, Long.MAX_VALUE}) {
+            assertTrue(QuantileSketch.highestValueIn(QuantileSketch.indexOf(value)) >= value);
+        }
+        assertEquals(Long.MAX_VALUE, QuantileSketch.highestValueIn(QuantileSketch.indexOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    void mergeAddsTheCounts() {
+        QuantileSketch low = new QuantileSketch();
+        QuantileSketch high = new QuantileSketch();
+        for (long value = 0; value < 50; value++) {
+            low.record(value);
+            high.record(value + 50);
+        }
+        low.merge(high);
+
+        assertEquals(100, low.getTotalCount());
+        assertEquals(49, low.quantile(0.5));
+        assertEquals(99, low.quantile(1.0));
+    }
+
+    @Test
+    void surviveAWriteAndRead() throws IOException {
+        QuantileSketch sketch = new QuantileSketch();
+        for (long value = 1; value < 1_000_000; value *= 3) {
+            sketch.record(value);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        sketch.writeTo(new DataOutputStream(bytes));
+        QuantileSketch read = QuantileSketch.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(sketch.getTotalCount(), read.getTotalCount());
+        for (double q = 0; q <= 1; q += 0.05) {
+            assertEquals(sketch.quantile(q), read.quantile(q));
+        }
+    }
+
+    @Test
+    void emptySketchReportsZeroAndNegativeValuesAreRejected() {
+        QuantileSketch sketch = new QuantileSketch();
+        assertEquals(0, sketch.quantile(0.5));
+        assertThrows(IllegalArgumentException.class, () -> sketch.record(-1));
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RankedIndexTest {
+    @Test
+    void positionsFollowKeyDescendingThenId() {
+        RankedIndex index = new RankedIndex();
+        List<long[]> entries = new ArrayList<>();
+        Random random = new Random(5);
+        for (long id = 0; id < 2000; id++) {
+            long key = random.nextInt(100); // plenty of ties
+            index.insert(key, id);
+            entries.add(new long[]{key, id});
+        }
+        entries.sort(Comparator.<long[]>comparingLong(e -> -e[0]).thenComparingLong(e -> e[1]));
+
+        assertEquals(entries.size(), index.size());
+        for (int position = 0; position < entries.size(); position++) {
+            assertEquals(entries.get(position)[0], index.keyAt(position));
+            assertEquals(entries.get(position)[1], index.idAt(position));
+        }
+    }
+
+    @Test
+    void countsAndRanksTreatTiesAsEqual() {
+        RankedIndex index = new RankedIndex();
+        long[] keys = {50, 30, 30, 10, 70};
+        for (int id = 0; id < keys.length; id++) {
+            index.insert(keys[id], id);
+        }
+
+        assertEquals(2, index.countAbove(30));
+        assertEquals(1, index.countBelow(30));
+        assertEquals(3, index.rankOf(30));
+        assertEquals(1, index.rankOf(70));
+        assertEquals(1, index.rankOf(100)); // would be first
+        assertEquals(6, index.rankOf(0));
+        assertEquals(5, index.countBelow(100));
+    }
+
+    @Test
+    void containsMatchesKeyAndId() {
+        RankedIndex index = new RankedIndex();
+        for (long id = 0; id < 100; id++) {
+            index.insert(id % 7, id);
+        }
+
+        assertTrue(index.contains(3, 10));
+        assertTrue(index.contains(0, 0));
+        assertFalse(index.contains(4, 10));
+        assertFalse(index.contains(3, 100));
+    }
+
+    @Test
+    void clearEmptiesTheIndex() {
+        RankedIndex index = new RankedIndex();
+        index.insert(5, 1);
+        index.clear();
+
+        assertEquals(0, index.size());
+        assertFalse(index.contains(5, 1));
+        assertThrows(IndexOutOfBoundsException.class, () -> index.keyAt(0));
+        index.insert(6, 2);
+        assertEquals(2, index.idAt(0));
+    }
+}